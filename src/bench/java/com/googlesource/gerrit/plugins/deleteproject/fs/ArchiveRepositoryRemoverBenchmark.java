@@ -0,0 +1,105 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.gerrit.server.git.WorkQueue;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a run of {@link ArchiveRepositoryRemover} over an archive folder in which a share of the
+ * archived repositories are overdue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArchiveRepositoryRemoverBenchmark {
+  private static final long ARCHIVE_DURATION_MILLIS = ChronoUnit.DAYS.getDuration().toMillis();
+
+  @Param({"LOOSE_OBJECTS", "MANY_PACKS"})
+  public SyntheticRepository.Shape shape;
+
+  @Param({"2000"})
+  public int archivedRepositories;
+
+  @Param({"50"})
+  public int overduePercentage;
+
+  @Param({"20"})
+  public int objects;
+
+  private Path archiveFolder;
+  private ArchiveRepositoryRemover remover;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException {
+    archiveFolder = Files.createTempDirectory("archive-repository-remover-benchmark");
+    Configuration cfg = mock(Configuration.class);
+    when(cfg.getArchiveFolder()).thenReturn(archiveFolder);
+    when(cfg.getArchiveDuration()).thenReturn(ARCHIVE_DURATION_MILLIS);
+    remover =
+        new ArchiveRepositoryRemover(
+            mock(WorkQueue.class), cfg, "delete-project", DeletionPool.SEQUENTIAL);
+  }
+
+  @Setup(Level.Iteration)
+  public void createArchivedRepositories() throws IOException {
+    SyntheticRepository repository = new SyntheticRepository(shape, objects);
+    Instant overdue = Instant.now().minus(2, ChronoUnit.DAYS);
+    int overdueRepositories = archivedRepositories * overduePercentage / 100;
+    for (int i = 0; i < archivedRepositories; i++) {
+      Path repo = archiveFolder.resolve("project-" + i + ".20260101000000.%archived%.git");
+      if (Files.exists(repo)) {
+        continue;
+      }
+      repository.create(repo);
+      Instant archivedAt = i < overdueRepositories ? overdue : Instant.now();
+      ArchiveManifest.append(archiveFolder, "project-" + i, repo, archivedAt, 0);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException {
+    MoreFiles.deleteRecursively(archiveFolder, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void run() {
+    remover.run();
+  }
+}
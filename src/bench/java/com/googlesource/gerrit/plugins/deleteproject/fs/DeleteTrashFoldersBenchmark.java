@@ -0,0 +1,111 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.gerrit.server.config.RepositoryConfig;
+import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.WorkQueue;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.lib.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures a run of {@link DeleteTrashFolders} over a base path with many trash folders. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeleteTrashFoldersBenchmark {
+  private static final String TRASH_FOLDER_NAME = "trash";
+
+  @Param({"LOOSE_OBJECTS", "MANY_PACKS"})
+  public SyntheticRepository.Shape shape;
+
+  @Param({"2000"})
+  public int trashFolders;
+
+  @Param({"20"})
+  public int objects;
+
+  @Param({"1", "8"})
+  public int depth;
+
+  private Path root;
+  private Path basePath;
+  private DeleteTrashFolders deleteTrashFolders;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException {
+    root = Files.createTempDirectory("delete-trash-folders-benchmark");
+    basePath = root.resolve("git");
+    Config cfg = new Config();
+    cfg.setString("gerrit", null, "basePath", basePath.toString());
+
+    RepositoryConfig repositoryCfg = mock(RepositoryConfig.class);
+    when(repositoryCfg.getAllBasePaths()).thenReturn(ImmutableList.of());
+    Configuration pluginCfg = mock(Configuration.class);
+    when(pluginCfg.getTrashFolderName()).thenReturn(TRASH_FOLDER_NAME);
+    when(pluginCfg.getDeleteTrashFoldersMaxAllowedTime()).thenReturn(Long.MAX_VALUE);
+    deleteTrashFolders =
+        new DeleteTrashFolders(
+            new SitePaths(root),
+            cfg,
+            repositoryCfg,
+            pluginCfg,
+            mock(WorkQueue.class),
+            "delete-project",
+            DeletionPool.SEQUENTIAL);
+  }
+
+  @Setup(Level.Iteration)
+  public void createTrashFolders() throws IOException {
+    SyntheticRepository repository = new SyntheticRepository(shape, objects);
+    Path trash = basePath.resolve(TRASH_FOLDER_NAME);
+    for (int i = 0; i < trashFolders; i++) {
+      String name = SyntheticRepository.projectName("project-" + i, depth);
+      repository.create(trash.resolve(name + ".20260101000000.%deleted%.git"));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException {
+    MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void run() {
+    deleteTrashFolders.run();
+  }
+}
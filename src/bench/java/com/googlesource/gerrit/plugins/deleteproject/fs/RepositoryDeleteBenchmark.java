@@ -0,0 +1,121 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link RepositoryDelete#execute} for deleting and archiving a single repository. Every
+ * invocation works on a freshly generated repository.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class RepositoryDeleteBenchmark {
+  @Param({"LOOSE_OBJECTS", "MANY_PACKS"})
+  public SyntheticRepository.Shape shape;
+
+  @Param({"1000"})
+  public int objects;
+
+  @Param({"1", "8"})
+  public int depth;
+
+  private Path root;
+  private Path basePath;
+  private Path archiveFolder;
+  private Project.NameKey project;
+  private RepositoryDelete repositoryDelete;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException {
+    root = Files.createTempDirectory("repository-delete-benchmark");
+    basePath = root.resolve("git");
+    archiveFolder = root.resolve("archive");
+    project = Project.nameKey(SyntheticRepository.projectName("project", depth));
+
+    Configuration cfg = mock(Configuration.class);
+    when(cfg.getTrashFolderName()).thenReturn(Configuration.DEFAULT_TRASH_FOLDER_NAME);
+    GitRepositoryManager repoManager = mock(GitRepositoryManager.class);
+    when(repoManager.openRepository(project))
+        .thenAnswer(
+            i -> new FileRepository(basePath.resolve(project.get() + ".git").toFile()));
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            cfg,
+            mock(TrashReaper.class),
+            new DeletionMetrics(new DisabledMetricMaker()),
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL);
+  }
+
+  @Setup(Level.Iteration)
+  public void createRepository() throws IOException {
+    new SyntheticRepository(shape, objects).create(basePath.resolve(project.get() + ".git"));
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteArchive() throws IOException {
+    if (Files.exists(archiveFolder)) {
+      MoreFiles.deleteRecursively(archiveFolder, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException {
+    MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void delete() throws IOException {
+    repositoryDelete.execute(project, false, false, Optional.empty(), DynamicSet.emptySet());
+  }
+
+  @Benchmark
+  public void archive() throws IOException {
+    repositoryDelete.execute(
+        project, false, true, Optional.of(archiveFolder), DynamicSet.emptySet());
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/** Generates repositories of a given shape for the filesystem benchmarks. */
+public class SyntheticRepository {
+  public enum Shape {
+    /** All the objects are stored as loose objects, spread over the fan-out folders. */
+    LOOSE_OBJECTS,
+    /** Every object is stored in its own pack, as on a server which never ran gc. */
+    MANY_PACKS
+  }
+
+  private static final int LOOSE_OBJECT_SIZE = 512;
+  private static final int PACK_SIZE = 64 * 1024;
+  private static final int IDX_SIZE = 2 * 1024;
+
+  private final Random random = new Random(42);
+  private final Shape shape;
+  private final int objects;
+  private final byte[] content;
+
+  SyntheticRepository(Shape shape, int objects) {
+    this.shape = shape;
+    this.objects = objects;
+    this.content = new byte[shape == Shape.LOOSE_OBJECTS ? LOOSE_OBJECT_SIZE : PACK_SIZE];
+    random.nextBytes(content);
+  }
+
+  /**
+   * Returns a project name made of {@code depth} path segments, e.g. {@code a1/a2/prefix} for a
+   * depth of 3.
+   */
+  static String projectName(String prefix, int depth) {
+    StringBuilder name = new StringBuilder();
+    for (int i = 1; i < depth; i++) {
+      name.append('a').append(i).append('/');
+    }
+    return name.append(prefix).toString();
+  }
+
+  /** Creates a bare repository in {@code dir} and fills it with the configured objects. */
+  Path create(Path dir) throws IOException {
+    try (FileRepository repo = new FileRepository(dir.toFile())) {
+      repo.create(true);
+    }
+    Path objectsDir = dir.resolve("objects");
+    for (int i = 0; i < objects; i++) {
+      String name = nextObjectName();
+      switch (shape) {
+        case LOOSE_OBJECTS:
+          Path fanOut = Files.createDirectories(objectsDir.resolve(name.substring(0, 2)));
+          Files.write(fanOut.resolve(name.substring(2)), content);
+          break;
+        case MANY_PACKS:
+          Path packDir = objectsDir.resolve("pack");
+          Files.write(packDir.resolve("pack-" + name + ".pack"), content);
+          Files.write(packDir.resolve("pack-" + name + ".idx"), new byte[IDX_SIZE]);
+          break;
+      }
+    }
+    return dir;
+  }
+
+  private String nextObjectName() {
+    byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+    random.nextBytes(raw);
+    return ObjectId.fromRaw(raw).name();
+  }
+}
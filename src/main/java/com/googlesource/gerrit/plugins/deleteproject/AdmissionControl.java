@@ -0,0 +1,113 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of deletions which run their filesystem or index phases at the same time, so
+ * that concurrent deletions of large projects do not saturate the shared storage. Deletions which
+ * exceed the limit wait in the order in which they arrived.
+ */
+@Singleton
+class AdmissionControl {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  /** Admission to a phase, which must be closed when the phase is done. */
+  interface Permit extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final Permit UNLIMITED = () -> {};
+
+  private final Semaphore filesystem;
+  private final Semaphore index;
+
+  @Inject
+  AdmissionControl(Configuration cfg, MetricMaker metricMaker) {
+    filesystem = newSemaphore(cfg.getMaxConcurrentFilesystemDeletions());
+    index = newSemaphore(cfg.getMaxConcurrentIndexDeletions());
+    metricMaker.newCallbackMetric(
+        "admission/filesystem_queue_depth",
+        Integer.class,
+        new Description("Number of deletions waiting to delete their repository")
+            .setGauge()
+            .setUnit("deletions"),
+        () -> queueLength(filesystem));
+    metricMaker.newCallbackMetric(
+        "admission/index_queue_depth",
+        Integer.class,
+        new Description("Number of deletions waiting to remove their changes from the index")
+            .setGauge()
+            .setUnit("deletions"),
+        () -> queueLength(index));
+  }
+
+  /** Waits until the repository of a project may be deleted. */
+  Permit admitFilesystem(Project.NameKey project) throws InterruptedIOException {
+    return admit(filesystem, "filesystem", project);
+  }
+
+  /** Waits until the changes of a project may be removed from the index. */
+  Permit admitIndex(Project.NameKey project) throws InterruptedIOException {
+    return admit(index, "index", project);
+  }
+
+  int getFilesystemQueueDepth() {
+    return queueLength(filesystem);
+  }
+
+  int getIndexQueueDepth() {
+    return queueLength(index);
+  }
+
+  private static Permit admit(Semaphore semaphore, String phase, Project.NameKey project)
+      throws InterruptedIOException {
+    if (semaphore == null) {
+      return UNLIMITED;
+    }
+    try {
+      // Unlike tryAcquire(), a timed tryAcquire() honors the fairness of the semaphore.
+      if (!semaphore.tryAcquire(0, TimeUnit.SECONDS)) {
+        log.atInfo().log(
+            "Deletion of project %s is waiting for %s admission, %d deletions queued",
+            project, phase, semaphore.getQueueLength());
+        semaphore.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          String.format("Interrupted while waiting for %s admission", phase));
+    }
+    return semaphore::release;
+  }
+
+  private static Semaphore newSemaphore(int permits) {
+    return permits > 0 ? new Semaphore(permits, true) : null;
+  }
+
+  private static int queueLength(Semaphore semaphore) {
+    return semaphore != null ? semaphore.getQueueLength() : 0;
+  }
+}
@@ -14,6 +14,8 @@
 
 package com.googlesource.gerrit.plugins.deleteproject;
 
+import static com.google.common.base.CaseFormat.LOWER_CAMEL;
+import static com.google.common.base.CaseFormat.UPPER_UNDERSCORE;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -35,13 +37,25 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import org.eclipse.jgit.lib.Config;
 
 @Singleton
 public class Configuration {
+  /** The format in which deleted repositories are archived. */
+  public enum ArchiveFormat {
+    /** The repository folder is kept as it is. */
+    DIRECTORY,
+    /** The repository is stored as a single git bundle. */
+    BUNDLE,
+    /** The repository folder is kept, with its pack files in a shared content addressed store. */
+    DEDUPLICATED
+  }
+
   private static final FluentLogger log = FluentLogger.forEnclosingClass();
   private static final String DELETED_PROJECTS_PARENT = "Deleted-Projects";
   private static final long DEFAULT_ARCHIVE_DURATION_DAYS = 180;
@@ -49,12 +63,42 @@ public class Configuration {
   public static final String DEFAULT_TRASH_FOLDER_NAME = "";
   public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
   public static final long DEFAULT_PERIOD_DAYS = 1;
+  private static final int DEFAULT_STAGE_QUEUE_SIZE = 10;
+  private static final int DEFAULT_UNSTAR_BATCH_SIZE = 10000;
+  private static final int DEFAULT_USER_REFS_BATCH_SIZE = 10000;
+  private static final int DEFAULT_WATCH_BATCH_SIZE = 500;
+  private static final int DEFAULT_INDEX_PURGE_BATCH_SIZE = 1000;
+  private static final long DEFAULT_ALL_USERS_GC_MIN_INTERVAL_MINUTES = 60;
+  private static final long DEFAULT_ORPHAN_SWEEP_MAX_TIME_MINUTES = 10;
+  private static final int DEFAULT_REINDEX_BATCH_SIZE = 100;
 
   private final boolean allowDeletionWithTags;
   private final boolean archiveDeletedRepos;
+  private final ArchiveFormat archiveFormat;
+  private final int archiveCompressionLevel;
+  private final boolean deferRepositoryDeletion;
+  private final boolean enumerateChangesFromRefs;
   private final boolean hideProjectOnPreserve;
   private final long deleteArchivedReposAfter;
   private final long deleteTrashFoldersMaxAllowedTime;
+  private final int deletionThreads;
+  private final int deletionParallelism;
+  private final int archiveCopyThreads;
+  private final int maxConcurrentFilesystemDeletions;
+  private final int maxConcurrentIndexDeletions;
+  private final Map<DeletePhase, Integer> stageThreads = new EnumMap<>(DeletePhase.class);
+  private final int stageQueueSize;
+  private final int unstarBatchSize;
+  private final int userRefsBatchSize;
+  private final int watchBatchSize;
+  private final boolean deferIndexPurge;
+  private final int indexPurgeBatchSize;
+  private final long allUsersGcThreshold;
+  private final long allUsersGcMinInterval;
+  private final boolean sweepOrphans;
+  private final long orphanSweepMaxTime;
+  private final int reindexThreads;
+  private final int reindexBatchSize;
   private final String deletedProjectsParent;
   private final String trashFolderName;
   private final Path archiveFolder;
@@ -76,11 +120,16 @@ public class Configuration {
     this.hideProjectOnPreserve = cfg.getBoolean("hideProjectOnPreserve", false);
     this.deletedProjectsParent = cfg.getString("parentForDeletedProjects", DELETED_PROJECTS_PARENT);
     this.archiveDeletedRepos = cfg.getBoolean("archiveDeletedRepos", false);
+    this.archiveCompressionLevel =
+        Math.min(Math.max(cfg.getInt("archiveCompressionLevel", -1), -1), 9);
+    this.deferRepositoryDeletion = cfg.getBoolean("deferRepositoryDeletion", false);
+    this.enumerateChangesFromRefs = cfg.getBoolean("enumerateChangesFromRefs", true);
     this.deleteTrashFoldersMaxAllowedTime =
         getTrashFoldersMaxAllowedTimeFromConfig(
             cfg.getString("deleteTrashFoldersMaxAllowedTime", pluginData.toString()));
     this.archiveFolder =
         getArchiveFolderFromConfig(cfg.getString("archiveFolder", pluginData.toString()));
+    this.archiveFormat = cfg.getEnum("archiveFormat", ArchiveFormat.DIRECTORY);
     this.deleteArchivedReposAfter =
         getArchiveDurationFromConfig(
             Strings.nullToEmpty(cfg.getString("deleteArchivedReposAfter")));
@@ -98,6 +147,35 @@ public class Configuration {
             .setKeyJitter("cleanupJitter")
             .buildSchedule();
     this.trashFolderName = cfg.getString("trashFolderName", DEFAULT_TRASH_FOLDER_NAME);
+    this.deletionThreads =
+        Math.max(1, cfg.getInt("deletionThreads", Runtime.getRuntime().availableProcessors()));
+    this.deletionParallelism = Math.max(1, cfg.getInt("deletionParallelism", 1));
+    this.archiveCopyThreads = Math.max(1, cfg.getInt("archiveCopyThreads", 1));
+    this.maxConcurrentFilesystemDeletions = cfg.getInt("maxConcurrentFilesystemDeletions", 0);
+    this.maxConcurrentIndexDeletions = cfg.getInt("maxConcurrentIndexDeletions", 0);
+    for (DeletePhase phase : DeletePhase.values()) {
+      String key = UPPER_UNDERSCORE.to(LOWER_CAMEL, phase.name()) + "StageThreads";
+      stageThreads.put(phase, Math.max(1, cfg.getInt(key, deletionThreads)));
+    }
+    this.stageQueueSize = Math.max(0, cfg.getInt("stageQueueSize", DEFAULT_STAGE_QUEUE_SIZE));
+    this.unstarBatchSize = Math.max(1, cfg.getInt("unstarBatchSize", DEFAULT_UNSTAR_BATCH_SIZE));
+    this.userRefsBatchSize =
+        Math.max(1, cfg.getInt("userRefsBatchSize", DEFAULT_USER_REFS_BATCH_SIZE));
+    this.watchBatchSize = Math.max(1, cfg.getInt("watchBatchSize", DEFAULT_WATCH_BATCH_SIZE));
+    this.deferIndexPurge = cfg.getBoolean("deferIndexPurge", false);
+    this.indexPurgeBatchSize =
+        Math.max(1, cfg.getInt("indexPurgeBatchSize", DEFAULT_INDEX_PURGE_BATCH_SIZE));
+    this.allUsersGcThreshold = cfg.getLong("allUsersGcThreshold", 0);
+    this.allUsersGcMinInterval =
+        getAllUsersGcMinIntervalFromConfig(
+            Strings.nullToEmpty(cfg.getString("allUsersGcMinInterval")));
+    this.sweepOrphans = cfg.getBoolean("sweepOrphans", false);
+    this.orphanSweepMaxTime =
+        getOrphanSweepMaxTimeFromConfig(Strings.nullToEmpty(cfg.getString("orphanSweepMaxTime")));
+    this.reindexThreads =
+        Math.max(1, cfg.getInt("reindexThreads", Runtime.getRuntime().availableProcessors()));
+    this.reindexBatchSize =
+        Math.max(1, cfg.getInt("reindexBatchSize", DEFAULT_REINDEX_BATCH_SIZE));
   }
 
   public String getTrashFolderName() {
@@ -128,10 +206,98 @@ public class Configuration {
     return archiveDeletedRepos;
   }
 
+  public ArchiveFormat getArchiveFormat() {
+    return archiveFormat;
+  }
+
+  public int getArchiveCompressionLevel() {
+    return archiveCompressionLevel;
+  }
+
+  public boolean deferRepositoryDeletion() {
+    return deferRepositoryDeletion;
+  }
+
   public Path getArchiveFolder() {
     return archiveFolder;
   }
 
+  public int getDeletionThreads() {
+    return deletionThreads;
+  }
+
+  public int getDeletionParallelism() {
+    return deletionParallelism;
+  }
+
+  public int getArchiveCopyThreads() {
+    return archiveCopyThreads;
+  }
+
+  public int getStageThreads(DeletePhase phase) {
+    return stageThreads.get(phase);
+  }
+
+  public int getStageQueueSize() {
+    return stageQueueSize;
+  }
+
+  public boolean enumerateChangesFromRefs() {
+    return enumerateChangesFromRefs;
+  }
+
+  public int getUnstarBatchSize() {
+    return unstarBatchSize;
+  }
+
+  public int getUserRefsBatchSize() {
+    return userRefsBatchSize;
+  }
+
+  public int getWatchBatchSize() {
+    return watchBatchSize;
+  }
+
+  public boolean deferIndexPurge() {
+    return deferIndexPurge;
+  }
+
+  public int getIndexPurgeBatchSize() {
+    return indexPurgeBatchSize;
+  }
+
+  public long getAllUsersGcThreshold() {
+    return allUsersGcThreshold;
+  }
+
+  public long getAllUsersGcMinInterval() {
+    return allUsersGcMinInterval;
+  }
+
+  public boolean sweepOrphans() {
+    return sweepOrphans;
+  }
+
+  public long getOrphanSweepMaxTime() {
+    return orphanSweepMaxTime;
+  }
+
+  public int getReindexThreads() {
+    return reindexThreads;
+  }
+
+  public int getReindexBatchSize() {
+    return reindexBatchSize;
+  }
+
+  public int getMaxConcurrentFilesystemDeletions() {
+    return maxConcurrentFilesystemDeletions;
+  }
+
+  public int getMaxConcurrentIndexDeletions() {
+    return maxConcurrentIndexDeletions;
+  }
+
   public long getArchiveDuration() {
     return deleteArchivedReposAfter;
   }
@@ -159,6 +325,32 @@ public class Configuration {
     }
   }
 
+  private long getAllUsersGcMinIntervalFromConfig(String configValue) {
+    long defaultConfigValue = MINUTES.toMillis(DEFAULT_ALL_USERS_GC_MIN_INTERVAL_MINUTES);
+    try {
+      return ConfigUtil.getTimeUnit(configValue, defaultConfigValue, MILLISECONDS);
+    } catch (IllegalArgumentException e) {
+      log.atWarning().log(
+          "The configured All-Users gc interval is not valid: %s; using the default value:"
+              + " %d minutes",
+          e.getMessage(), DEFAULT_ALL_USERS_GC_MIN_INTERVAL_MINUTES);
+      return defaultConfigValue;
+    }
+  }
+
+  private long getOrphanSweepMaxTimeFromConfig(String configValue) {
+    long defaultConfigValue = MINUTES.toSeconds(DEFAULT_ORPHAN_SWEEP_MAX_TIME_MINUTES);
+    try {
+      return ConfigUtil.getTimeUnit(configValue, defaultConfigValue, SECONDS);
+    } catch (IllegalArgumentException e) {
+      log.atWarning().log(
+          "The configured orphan sweep max time is not valid: %s; using the default value:"
+              + " %d minutes",
+          e.getMessage(), DEFAULT_ORPHAN_SWEEP_MAX_TIME_MINUTES);
+      return defaultConfigValue;
+    }
+  }
+
   private long getTrashFoldersMaxAllowedTimeFromConfig(String configValue) {
     long defaultConfigValue = MINUTES.toSeconds(DEFAULT_TRASH_FOLDER_MAX_ALLOWED_TIME_MINUTES);
     try {
@@ -42,7 +42,13 @@ public class DeleteAction extends DeleteProject implements UiAction<ProjectResou
       Configuration cfg,
       HideProject hideProject,
       DynamicItem<EventDispatcher> dispatcher,
-      @Nullable @GerritInstanceId String instanceId) {
+      @Nullable @GerritInstanceId String instanceId,
+      DeletionQueue deletionQueue,
+      DeletionJournal journal,
+      DeletionMetrics metrics,
+      DeletionTimings timings,
+      DeletionImpact deletionImpact,
+      AdmissionControl admissionControl) {
     super(
         dbHandler,
         fsHandler,
@@ -53,7 +59,13 @@ public class DeleteAction extends DeleteProject implements UiAction<ProjectResou
         cfg,
         hideProject,
         dispatcher,
-        instanceId);
+        instanceId,
+        deletionQueue,
+        journal,
+        metrics,
+        timings,
+        deletionImpact,
+        admissionControl);
     this.protectedProjects = protectedProjects;
   }
 
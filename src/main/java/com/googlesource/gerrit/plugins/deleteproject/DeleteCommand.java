@@ -14,20 +14,44 @@
 
 package com.googlesource.gerrit.plugins.deleteproject;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.project.ProjectCache;
 import com.google.gerrit.server.project.ProjectResource;
 import com.google.gerrit.server.project.ProjectState;
 import com.google.gerrit.sshd.CommandMetaData;
 import com.google.gerrit.sshd.SshCommand;
 import com.google.inject.Inject;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
 
 @CommandMetaData(name = "delete", description = "Delete specific project")
 final class DeleteCommand extends SshCommand {
-  @Argument(index = 0, required = true, metaVar = "NAME", usage = "project to delete")
-  private ProjectState projectState;
+  @Argument(index = 0, multiValued = true, metaVar = "NAME", usage = "projects to delete")
+  private List<ProjectState> projectStates = new ArrayList<>();
+
+  @Option(name = "--stdin", usage = "read the names of the projects to delete from stdin")
+  private boolean stdin;
+
+  @Option(
+      name = "--threads",
+      metaVar = "N",
+      usage = "number of projects to delete in parallel when deleting several projects")
+  private int threads = 1;
 
   @Option(name = "--yes-really-delete", usage = "confirmation to delete the project")
   private boolean yesReallyDelete;
@@ -40,15 +64,33 @@ final class DeleteCommand extends SshCommand {
 
   private final DeleteProject deleteProject;
   private final DeletePreconditions preConditions;
+  private final DeletionQueue deletionQueue;
+  private final ProjectCache projectCache;
 
   @Inject
-  DeleteCommand(DeleteProject deleteProject, DeletePreconditions preConditions) {
+  DeleteCommand(
+      DeleteProject deleteProject,
+      DeletePreconditions preConditions,
+      DeletionQueue deletionQueue,
+      ProjectCache projectCache) {
     this.deleteProject = deleteProject;
     this.preConditions = preConditions;
+    this.deletionQueue = deletionQueue;
+    this.projectCache = projectCache;
   }
 
   @Override
   public void run() throws Failure {
+    if (projectStates.size() == 1 && !stdin) {
+      deleteProject(projectStates.get(0));
+    } else if (!projectStates.isEmpty() || stdin) {
+      deleteProjects();
+    } else {
+      throw die("at least one project or --stdin is required");
+    }
+  }
+
+  private void deleteProject(ProjectState projectState) throws Failure {
     try {
       DeleteProject.Input input = new DeleteProject.Input();
       input.force = force;
@@ -85,4 +127,98 @@ final class DeleteCommand extends SshCommand {
       throw die(e);
     }
   }
+
+  private void deleteProjects() throws Failure {
+    if (!yesReallyDelete) {
+      throw new UnloggedFailure(
+          "Really delete these projects?\n"
+              + "This is an operation which permanently deletes data. This cannot be undone!\n"
+              + "If you are sure you wish to delete these projects, re-run with the"
+              + " --yes-really-delete flag.\n");
+    }
+    if (threads < 1) {
+      throw die("--threads must be at least 1");
+    }
+
+    DeleteProject.Input input = new DeleteProject.Input();
+    input.force = force;
+    input.preserve = preserveGitRepository;
+
+    Semaphore inFlight = new Semaphore(threads);
+    AtomicInteger failures = new AtomicInteger();
+    // A project named more than once is only deleted once, in the order it was first named.
+    Set<String> names = new HashSet<>();
+    int total = 0;
+    try {
+      for (ProjectState projectState : projectStates) {
+        if (!names.add(projectState.getName())) {
+          continue;
+        }
+        inFlight.acquire();
+        submit(projectState, input, inFlight, failures);
+        total++;
+      }
+      if (stdin) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String name = line.trim();
+          if (name.isEmpty() || !names.add(name)) {
+            continue;
+          }
+          total++;
+          Optional<ProjectState> projectState = projectCache.get(Project.nameKey(name));
+          if (projectState.isEmpty()) {
+            failures.incrementAndGet();
+            printResult(DeletionTask.Status.FAILED, name, "project not found");
+            continue;
+          }
+          inFlight.acquire();
+          submit(projectState.get(), input, inFlight, failures);
+        }
+      }
+      inFlight.acquire(threads);
+    } catch (IOException e) {
+      throw die(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw die(e);
+    }
+
+    if (failures.get() > 0) {
+      throw die(String.format("%d of %d projects could not be deleted", failures.get(), total));
+    }
+  }
+
+  private void submit(
+      ProjectState projectState,
+      DeleteProject.Input input,
+      Semaphore inFlight,
+      AtomicInteger failures) {
+    DeletionTask task =
+        deletionQueue.submitAndVerify(new ProjectResource(projectState, user), input);
+    task.result()
+        .addListener(
+            () -> {
+              try {
+                DeletionTaskInfo info = task.toInfo();
+                if (task.getStatus() == DeletionTask.Status.FAILED) {
+                  failures.incrementAndGet();
+                }
+                printResult(task.getStatus(), info.project, info.error);
+              } finally {
+                inFlight.release();
+              }
+            },
+            directExecutor());
+  }
+
+  private void printResult(DeletionTask.Status status, String project, String error) {
+    synchronized (stdout) {
+      stdout.print(
+          String.format(
+              "%s %s%s\n", status, project, Strings.isNullOrEmpty(error) ? "" : ": " + error));
+      stdout.flush();
+    }
+  }
 }
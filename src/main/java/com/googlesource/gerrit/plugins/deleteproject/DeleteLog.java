@@ -28,6 +28,8 @@ import com.google.gerrit.server.util.SystemLog;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.TreeMap;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -42,6 +44,7 @@ class DeleteLog extends PluginLogFile {
   public static final String USER_NAME = "userName";
   public static final String PROJECT_NAME = "projectName";
   public static final String OPTIONS = "options";
+  public static final String STATS = "stats";
   public static final String ERROR = "error";
 
   private final AuditService auditService;
@@ -63,7 +66,11 @@ class DeleteLog extends PluginLogFile {
   }
 
   public void onDelete(
-      IdentifiedUser user, Project.NameKey project, DeleteProject.Input options, Exception ex) {
+      IdentifiedUser user,
+      Project.NameKey project,
+      DeleteProject.Input options,
+      Map<String, Long> stats,
+      Exception ex) {
     long ts = TimeUtil.nowMs();
     LoggingEvent event =
         new LoggingEvent( //
@@ -93,6 +100,10 @@ class DeleteLog extends PluginLogFile {
       event.setProperty(OPTIONS, OutputFormat.JSON_COMPACT.newGson().toJson(options));
     }
 
+    if (!stats.isEmpty()) {
+      event.setProperty(STATS, OutputFormat.JSON_COMPACT.newGson().toJson(new TreeMap<>(stats)));
+    }
+
     if (ex != null) {
       event.setProperty(ERROR, ex.toString());
     }
@@ -52,6 +52,9 @@ public class DeleteLogJsonLayout extends JsonLayout {
     /** Options used in the project deletion. */
     public final JsonObject options;
 
+    /** Optional amounts of data of the project removed from All-Users. */
+    public final JsonObject stats;
+
     /** Optional error message. */
     public final String error;
 
@@ -68,6 +71,8 @@ public class DeleteLogJsonLayout extends JsonLayout {
       this.project = (String) event.getMDC(DeleteLog.PROJECT_NAME);
       this.options =
           JsonParser.parseString((String) event.getMDC(DeleteLog.OPTIONS)).getAsJsonObject();
+      String stats = (String) event.getMDC(DeleteLog.STATS);
+      this.stats = stats != null ? JsonParser.parseString(stats).getAsJsonObject() : null;
       this.error = (String) event.getMDC(DeleteLog.ERROR);
     }
   }
@@ -32,6 +32,9 @@ final class DeleteLogLayout extends Layout {
    * <p>A successful project deletion will result in a log entry like this: [2015-03-05 09:13:28,912
    * +0100] INFO 1000000 admin OK \ myProject {"preserve":false,"force":false}
    *
+   * <p>Deletions which removed data of the project from All-Users append the amounts, e.g.
+   * {"changes_unstarred":12,"user_refs_purged":3,"watches_removed":2}.
+   *
    * <p>The log entry for a failed project deletion will look like this: [2015-03-05 12:14:30,180
    * +0100] ERROR 1000000 admin FAIL \ myProject {"preserve":false,"force":false}
    * com.google.gerrit.exceptions.StorageException: \ Failed to access the database
@@ -53,6 +56,7 @@ final class DeleteLogLayout extends Layout {
 
     req(DeleteLog.PROJECT_NAME, buf, event);
     opt(DeleteLog.OPTIONS, buf, event);
+    opt(DeleteLog.STATS, buf, event);
     opt(DeleteLog.ERROR, buf, event);
 
     buf.append('\n');
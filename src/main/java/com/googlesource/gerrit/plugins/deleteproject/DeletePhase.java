@@ -0,0 +1,42 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.common.collect.ImmutableList;
+
+/** The steps of a project deletion, in the order in which they are executed. */
+public enum DeletePhase {
+  INDEX,
+  STARS,
+  USER_REFS,
+  WATCHES,
+  FILESYSTEM,
+  CACHE,
+  HIDE,
+  EVENT;
+
+  private static final ImmutableList<DeletePhase> DELETE =
+      ImmutableList.of(INDEX, STARS, USER_REFS, WATCHES, FILESYSTEM, CACHE, EVENT);
+  private static final ImmutableList<DeletePhase> HIDE_ONLY = ImmutableList.of(HIDE, EVENT);
+
+  /**
+   * Returns the phases executed for a deletion.
+   *
+   * @param hide whether the project is hidden rather than deleted.
+   */
+  public static ImmutableList<DeletePhase> phases(boolean hide) {
+    return hide ? HIDE_ONLY : DELETE;
+  }
+}
@@ -104,6 +104,30 @@ class DeletePreconditions {
                 .testOrFalse(ProjectPermission.WRITE_CONFIG));
   }
 
+  /**
+   * Restoring a project requires the global capability to delete projects, since the owners of a
+   * deleted project can no longer be determined.
+   */
+  void assertRestorePermission() throws AuthException {
+    PermissionBackend.WithUser userPermission = permissionBackend.user(userProvider.get());
+    if (!userPermission.testOrFalse(GlobalPermission.ADMINISTRATE_SERVER)
+        && !userPermission.testOrFalse(new PluginPermission(pluginName, DELETE_PROJECT))) {
+      throw new AuthException("not allowed to restore project");
+    }
+  }
+
+  void assertAuthenticated() throws AuthException {
+    if (!userProvider.get().isIdentifiedUser()) {
+      throw new AuthException("Authentication required");
+    }
+  }
+
+  boolean canSeeTask(DeletionTask task) {
+    CurrentUser user = userProvider.get();
+    return task.getAccountId().equals(user.getAccountId())
+        || permissionBackend.user(user).testOrFalse(GlobalPermission.ADMINISTRATE_SERVER);
+  }
+
   void assertCanBeDeleted(ProjectResource rsrc, Input input) throws ResourceConflictException {
     try {
       protectedProjects.assertIsNotProtected(rsrc);
@@ -14,6 +14,10 @@
 
 package com.googlesource.gerrit.plugins.deleteproject;
 
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.registration.DynamicItem;
@@ -21,6 +25,7 @@ import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
 import com.google.gerrit.extensions.restapi.RestModifyView;
+import com.google.gerrit.metrics.Timer0;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.IdentifiedUser;
 import com.google.gerrit.server.config.GerritInstanceId;
@@ -34,6 +39,8 @@ import com.googlesource.gerrit.plugins.deleteproject.cache.CacheDeleteHandler;
 import com.googlesource.gerrit.plugins.deleteproject.database.DatabaseDeleteHandler;
 import com.googlesource.gerrit.plugins.deleteproject.fs.FilesystemDeleteHandler;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 
 @Singleton
@@ -41,6 +48,8 @@ class DeleteProject implements RestModifyView<ProjectResource, Input> {
   static class Input {
     boolean preserve;
     boolean force;
+    boolean async;
+    boolean dryRun;
   }
 
   protected final DeletePreconditions preConditions;
@@ -54,6 +63,12 @@ class DeleteProject implements RestModifyView<ProjectResource, Input> {
   private final HideProject hideProject;
   private final DynamicItem<EventDispatcher> dispatcher;
   private final String instanceId;
+  private final DeletionQueue deletionQueue;
+  private final DeletionJournal journal;
+  private final DeletionMetrics metrics;
+  private final DeletionTimings timings;
+  private final DeletionImpact deletionImpact;
+  private final AdmissionControl admissionControl;
 
   @Inject
   DeleteProject(
@@ -66,7 +81,13 @@ class DeleteProject implements RestModifyView<ProjectResource, Input> {
       Configuration cfg,
       HideProject hideProject,
       DynamicItem<EventDispatcher> dispatcher,
-      @Nullable @GerritInstanceId String instanceId) {
+      @Nullable @GerritInstanceId String instanceId,
+      DeletionQueue deletionQueue,
+      DeletionJournal journal,
+      DeletionMetrics metrics,
+      DeletionTimings timings,
+      DeletionImpact deletionImpact,
+      AdmissionControl admissionControl) {
     this.dbHandler = dbHandler;
     this.fsHandler = fsHandler;
     this.cacheHandler = cacheHandler;
@@ -77,6 +98,12 @@ class DeleteProject implements RestModifyView<ProjectResource, Input> {
     this.hideProject = hideProject;
     this.dispatcher = dispatcher;
     this.instanceId = instanceId;
+    this.deletionQueue = deletionQueue;
+    this.journal = journal;
+    this.metrics = metrics;
+    this.timings = timings;
+    this.deletionImpact = deletionImpact;
+    this.admissionControl = admissionControl;
   }
 
   @Override
@@ -84,45 +111,183 @@ class DeleteProject implements RestModifyView<ProjectResource, Input> {
     preConditions.assertDeletePermission(rsrc);
     preConditions.assertCanBeDeleted(rsrc, input);
 
+    if (input != null && input.dryRun) {
+      return Response.ok(deletionImpact.estimate(rsrc, input));
+    }
+
+    if (input != null && input.async) {
+      return Response.withStatusCode(SC_ACCEPTED, deletionQueue.submit(rsrc, input).toInfo());
+    }
+
     doDelete(rsrc, input);
     return Response.none();
   }
 
   public void doDelete(ProjectResource rsrc, Input input) throws IOException, RestApiException {
+    doDelete(rsrc, input, DeletionProgress.NONE);
+  }
+
+  void doDelete(ProjectResource rsrc, Input input, DeletionProgress progress)
+      throws IOException, RestApiException {
+    run(start(rsrc, input, progress));
+  }
+
+  /**
+   * Starts the deletion of a project. The caller must run all the phases of the deletion and
+   * finish it.
+   */
+  Deletion start(ProjectResource rsrc, Input input, DeletionProgress progress)
+      throws IOException {
     Project project = rsrc.getProjectState().getProject();
-    boolean preserve = input != null && input.preserve;
+    return new Deletion(
+        project,
+        input,
+        journal.begin(project.getNameKey(), userProvider.get().getAccountId(), input),
+        progress);
+  }
+
+  /**
+   * Starts a deletion which was interrupted by a restart of the server. The phases which were
+   * completed before the restart are skipped.
+   */
+  Deletion resume(DeletionJournal.Entry journalEntry, DeletionProgress progress) {
+    return new Deletion(
+        Project.builder(journalEntry.getProject()).build(),
+        journalEntry.getInput(),
+        journalEntry,
+        progress);
+  }
+
+  private static void run(Deletion deletion) throws IOException, RestApiException {
     Exception ex = null;
     try {
-      if (!preserve || !cfg.projectOnPreserveHidden()) {
-        dbHandler.delete(project);
-        try {
-          fsHandler.delete(project.getNameKey(), preserve);
-        } catch (RepositoryNotFoundException e) {
-          throw new ResourceNotFoundException(project.getName(), e);
-        }
-        cacheHandler.delete(project);
-      } else {
-        hideProject.apply(rsrc);
+      for (DeletePhase phase : deletion.getPhases()) {
+        deletion.run(phase);
       }
-
-      ProjectDeletedEvent event = new ProjectDeletedEvent();
-      event.projectName = project.getName();
-      event.instanceId = instanceId;
-
-      /**
-       * EventBroker checks if user has the permission to access the project. But because this
-       * project is already deleted, check will always fail. That's why this event will be delivered
-       * only to the unrestricted listeners. Unrestricted events listeners are implementing {@link
-       * com.google.gerrit.server.events.EventListener} which allows to listen to events without
-       * user visibility restrictions. For example these events are going to be delivered to
-       * multi-site {@link com.googlesource.gerrit.plugins.multisite.event.EventHandler}
-       */
-      dispatcher.get().postEvent(project.getNameKey(), event);
     } catch (Exception e) {
       ex = e;
       throw e;
     } finally {
-      deleteLog.onDelete((IdentifiedUser) userProvider.get(), project.getNameKey(), input, ex);
+      deletion.finish(ex);
+    }
+  }
+
+  /** The deletion of a project, whose phases can be run one at a time. */
+  class Deletion {
+    private final Project project;
+    private final Input input;
+    private final DeletionJournal.Entry journalEntry;
+    private final DeletionProgress progress;
+    private final boolean preserve;
+    private final Map<String, Long> stats = new ConcurrentHashMap<>();
+
+    private Deletion(
+        Project project,
+        Input input,
+        DeletionJournal.Entry journalEntry,
+        DeletionProgress progress) {
+      this.project = project;
+      this.input = input;
+      this.journalEntry = journalEntry;
+      this.progress = progress;
+      this.preserve = input != null && input.preserve;
     }
+
+    Project.NameKey getProject() {
+      return project.getNameKey();
+    }
+
+    /** Returns the phases of this deletion, in the order in which they must be run. */
+    ImmutableList<DeletePhase> getPhases() {
+      return DeletePhase.phases(preserve && cfg.projectOnPreserveHidden());
+    }
+
+    /** Runs a phase of this deletion, unless it was completed before. */
+    void run(DeletePhase phase) throws IOException, RestApiException {
+      if (!journalEntry.isCompleted(phase)) {
+        progress.onPhaseStarted(phase);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        long units;
+        try (Timer0.Context ctx = metrics.phaseLatency(phase).start()) {
+          units = execute(phase);
+        }
+        timings.record(phase, units, stopwatch.elapsed());
+        journalEntry.completed(phase);
+      }
+      progress.onPhaseCompleted(phase);
+    }
+
+    /**
+     * Completes this deletion once all its phases were run, or one of them failed.
+     *
+     * @param failure the failure of the deletion, or null if it succeeded.
+     */
+    void finish(@Nullable Exception failure) {
+      if (failure != null) {
+        metrics.failures.increment();
+      }
+      journalEntry.finish(failure);
+      deleteLog.onDelete(
+          (IdentifiedUser) userProvider.get(), project.getNameKey(), input, stats, failure);
+    }
+
+    /** Executes a phase and returns the amount of work it did. */
+    private long execute(DeletePhase phase) throws IOException, RestApiException {
+      switch (phase) {
+        case INDEX:
+          try (AdmissionControl.Permit permit = admissionControl.admitIndex(project.getNameKey())) {
+            dbHandler.deleteFromIndex(project);
+          }
+          return 1;
+        case STARS:
+          return record("changes_unstarred", dbHandler.unstarChanges(project));
+        case USER_REFS:
+          return record("user_refs_purged", dbHandler.purgeUserRefs(project));
+        case WATCHES:
+          return record("watches_removed", dbHandler.deleteProjectWatches(project));
+        case FILESYSTEM:
+          try (AdmissionControl.Permit permit =
+              admissionControl.admitFilesystem(project.getNameKey())) {
+            fsHandler.delete(project.getNameKey(), preserve);
+          } catch (RepositoryNotFoundException e) {
+            // A resumed deletion may have moved the repository before being interrupted.
+            if (!journalEntry.isResumed()) {
+              throw new ResourceNotFoundException(project.getName(), e);
+            }
+          }
+          return 1;
+        case CACHE:
+          cacheHandler.delete(project);
+          return 1;
+        case HIDE:
+          hideProject.apply(project.getNameKey());
+          return 1;
+        case EVENT:
+          postEvent(project);
+          return 1;
+      }
+      throw new IllegalStateException("Unknown deletion phase " + phase);
+    }
+
+    private long record(String stat, long value) {
+      stats.put(stat, value);
+      return value;
+    }
+  }
+
+  private void postEvent(Project project) {
+    ProjectDeletedEvent event = new ProjectDeletedEvent();
+    event.projectName = project.getName();
+    event.instanceId = instanceId;
+
+    /**
+     * EventBroker checks if user has the permission to access the project. But because this
+     * project is already deleted, check will always fail. That's why this event will be delivered
+     * only to the unrestricted listeners. Unrestricted events listeners are implementing {@link
+     * com.google.gerrit.server.events.EventListener} which allows to listen to events without
+     * user visibility restrictions. For example these events are going to be delivered to
+     * multi-site {@link com.googlesource.gerrit.plugins.multisite.event.EventHandler}
+     */
+    dispatcher.get().postEvent(project.getNameKey(), event);
   }
 }
@@ -0,0 +1,109 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestModifyView;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.project.ProjectResource;
+import com.google.gerrit.server.project.ProjectState;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Deletes several projects at once. The deletions are executed in parallel by the {@link
+ * DeletionQueue}, each of them checking its own preconditions.
+ */
+@Singleton
+class DeleteProjects implements RestModifyView<ConfigResource, DeleteProjects.Input> {
+  static class Input extends DeleteProject.Input {
+    List<String> projects;
+  }
+
+  private final DeletionQueue deletionQueue;
+  private final DeletePreconditions preConditions;
+  private final ProjectCache projectCache;
+  private final Provider<CurrentUser> userProvider;
+
+  @Inject
+  DeleteProjects(
+      DeletionQueue deletionQueue,
+      DeletePreconditions preConditions,
+      ProjectCache projectCache,
+      Provider<CurrentUser> userProvider) {
+    this.deletionQueue = deletionQueue;
+    this.preConditions = preConditions;
+    this.projectCache = projectCache;
+    this.userProvider = userProvider;
+  }
+
+  @Override
+  public Response<Map<String, DeletionTaskInfo>> apply(ConfigResource rsrc, Input input)
+      throws RestApiException {
+    preConditions.assertAuthenticated();
+    if (input == null || input.projects == null || input.projects.isEmpty()) {
+      throw new BadRequestException("projects are required");
+    }
+    if (input.dryRun) {
+      throw new BadRequestException("dry_run is only supported for single projects");
+    }
+
+    CurrentUser user = userProvider.get();
+    Map<String, DeletionTaskInfo> results = new LinkedHashMap<>();
+    Map<String, DeletionTask> tasks = new LinkedHashMap<>();
+    for (String name : new LinkedHashSet<>(input.projects)) {
+      Optional<ProjectState> state = projectCache.get(Project.nameKey(name));
+      if (state.isEmpty()) {
+        results.put(name, notFound(name));
+        continue;
+      }
+      DeletionTask task =
+          deletionQueue.submitAndVerify(new ProjectResource(state.get(), user), input);
+      tasks.put(name, task);
+      results.put(name, task.toInfo());
+    }
+
+    if (input.async) {
+      return Response.withStatusCode(SC_ACCEPTED, results);
+    }
+
+    for (Map.Entry<String, DeletionTask> e : tasks.entrySet()) {
+      results.put(e.getKey(), Futures.getUnchecked(e.getValue().result()).toInfo());
+    }
+    return Response.ok(results);
+  }
+
+  private static DeletionTaskInfo notFound(String name) {
+    DeletionTaskInfo info = new DeletionTaskInfo();
+    info.project = name;
+    info.status = DeletionTask.Status.FAILED.name();
+    info.error = String.format("Project %s not found", name);
+    return info;
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.project.ProjectResource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
+import com.googlesource.gerrit.plugins.deleteproject.database.DatabaseDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.fs.FilesystemDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.fs.RepositoryUsage;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+
+/** Estimates what the deletion of a project costs, without deleting anything. */
+@Singleton
+class DeletionImpact {
+  private final DatabaseDeleteHandler dbHandler;
+  private final FilesystemDeleteHandler fsHandler;
+  private final Configuration cfg;
+  private final DeletionTimings timings;
+
+  @Inject
+  DeletionImpact(
+      DatabaseDeleteHandler dbHandler,
+      FilesystemDeleteHandler fsHandler,
+      Configuration cfg,
+      DeletionTimings timings) {
+    this.dbHandler = dbHandler;
+    this.fsHandler = fsHandler;
+    this.cfg = cfg;
+    this.timings = timings;
+  }
+
+  DeletionImpactInfo estimate(ProjectResource rsrc, Input input) throws IOException {
+    Project project = rsrc.getProjectState().getProject();
+    DeletionImpactInfo info = new DeletionImpactInfo();
+    info.project = project.getName();
+    try {
+      RepositoryUsage usage = fsHandler.getUsage(project.getNameKey());
+      info.repositorySize = usage.getBytes();
+      info.repositoryFiles = usage.getFiles();
+    } catch (RepositoryNotFoundException e) {
+      info.repositorySize = 0L;
+      info.repositoryFiles = 0L;
+    }
+    DatabaseDeleteHandler.Impact impact = dbHandler.estimate(project);
+    info.changes = impact.changes;
+    info.starringUsers = impact.starringAccounts.size();
+    info.watchers = impact.watchers;
+    info.estimatedDurationMillis = estimateDuration(impact, input);
+    return info;
+  }
+
+  private Long estimateDuration(DatabaseDeleteHandler.Impact impact, Input input) {
+    boolean hide = input.preserve && cfg.projectOnPreserveHidden();
+    Duration total = Duration.ZERO;
+    boolean estimated = false;
+    for (DeletePhase phase : DeletePhase.phases(hide)) {
+      Optional<Duration> d = timings.estimate(phase, units(phase, impact));
+      if (d.isPresent()) {
+        total = total.plus(d.get());
+        estimated = true;
+      }
+    }
+    return estimated ? total.toMillis() : null;
+  }
+
+  /** Returns the amount of work of a phase, in the units which the deletion records for it. */
+  private static long units(DeletePhase phase, DatabaseDeleteHandler.Impact impact) {
+    switch (phase) {
+      case STARS:
+        return impact.starredChanges;
+      case USER_REFS:
+        return impact.userRefs;
+      case WATCHES:
+        return impact.watches;
+      default:
+        return 1;
+    }
+  }
+}
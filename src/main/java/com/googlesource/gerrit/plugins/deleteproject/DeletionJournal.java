@@ -0,0 +1,243 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.annotations.PluginData;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * Persists the phases completed by the running deletions in the plugin data directory, so that
+ * deletions which were interrupted by a shutdown or a crash of the server can be resumed.
+ *
+ * <p>Every deletion has its own journal file, which is removed once the deletion succeeded. The
+ * journal of a deletion which failed is kept and marked as failed, so that the {@link
+ * OrphanSweeper} can attribute the data it left behind to its project.
+ */
+@Singleton
+class DeletionJournal {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String JOURNAL_FOLDER = "journal";
+  private static final String SUFFIX = ".config";
+  private static final String QUARANTINE_SUFFIX = ".invalid";
+  private static final String SECTION = "deletion";
+  private static final String KEY_PROJECT = "project";
+  private static final String KEY_ACCOUNT = "account";
+  private static final String KEY_PRESERVE = "preserve";
+  private static final String KEY_FORCE = "force";
+  private static final String KEY_COMPLETED = "completed";
+  private static final String KEY_FAILED = "failed";
+
+  private final Path journalFolder;
+
+  @Inject
+  DeletionJournal(@PluginData File pluginData) {
+    this.journalFolder = pluginData.toPath().resolve(JOURNAL_FOLDER);
+  }
+
+  /** Creates the journal of a deletion which is about to start. */
+  Entry begin(Project.NameKey project, Account.Id accountId, Input input) throws IOException {
+    Files.createDirectories(journalFolder);
+    String id = UUID.randomUUID().toString();
+    FileBasedConfig cfg =
+        new FileBasedConfig(journalFolder.resolve(id + SUFFIX).toFile(), FS.DETECTED);
+    cfg.setString(SECTION, null, KEY_PROJECT, project.get());
+    cfg.setInt(SECTION, null, KEY_ACCOUNT, accountId.get());
+    cfg.setBoolean(SECTION, null, KEY_PRESERVE, input != null && input.preserve);
+    cfg.setBoolean(SECTION, null, KEY_FORCE, input != null && input.force);
+    cfg.save();
+    return new Entry(id, cfg, EnumSet.noneOf(DeletePhase.class), false);
+  }
+
+  /** Returns the deletions which were started but did not finish. */
+  ImmutableList<Entry> pending() {
+    return list(false);
+  }
+
+  /** Returns the deletions which failed, and whose journal was not discarded yet. */
+  ImmutableList<Entry> failed() {
+    return list(true);
+  }
+
+  private ImmutableList<Entry> list(boolean failed) {
+    if (!Files.isDirectory(journalFolder)) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(journalFolder, "*" + SUFFIX)) {
+      for (Path file : files) {
+        load(file).filter(e -> e.isFailed() == failed).ifPresent(entries::add);
+      }
+    } catch (IOException e) {
+      log.atSevere().withCause(e).log("Failed to list deletion journals in %s", journalFolder);
+    }
+    return entries.build();
+  }
+
+  private Optional<Entry> load(Path file) {
+    String name = file.getFileName().toString();
+    FileBasedConfig cfg = new FileBasedConfig(file.toFile(), FS.DETECTED);
+    try {
+      cfg.load();
+    } catch (IOException | ConfigInvalidException e) {
+      log.atSevere().withCause(e).log("Ignoring invalid deletion journal %s", file);
+      return Optional.empty();
+    }
+    if (cfg.getString(SECTION, null, KEY_PROJECT) == null) {
+      log.atSevere().log("Ignoring deletion journal %s without project", file);
+      return Optional.empty();
+    }
+    Set<DeletePhase> completed = EnumSet.noneOf(DeletePhase.class);
+    for (String phase : cfg.getStringList(SECTION, null, KEY_COMPLETED)) {
+      try {
+        completed.add(DeletePhase.valueOf(phase));
+      } catch (IllegalArgumentException e) {
+        quarantine(file, phase);
+        return Optional.empty();
+      }
+    }
+    return Optional.of(
+        new Entry(name.substring(0, name.length() - SUFFIX.length()), cfg, completed, true));
+  }
+
+  /**
+   * Renames a journal with a phase which this version does not know, e.g. written by another
+   * version of the plugin, so that it is kept for inspection but neither resumed nor listed again.
+   */
+  private static void quarantine(Path file, String phase) {
+    Path quarantined = file.resolveSibling(file.getFileName() + QUARANTINE_SUFFIX);
+    try {
+      Files.move(file, quarantined, StandardCopyOption.REPLACE_EXISTING);
+      log.atSevere().log(
+          "Quarantined deletion journal %s with unknown phase %s as %s", file, phase, quarantined);
+    } catch (IOException e) {
+      log.atSevere().withCause(e).log(
+          "Ignoring deletion journal %s with unknown phase %s", file, phase);
+    }
+  }
+
+  /** Journal of a single deletion. */
+  static class Entry {
+    private final String id;
+    private final FileBasedConfig cfg;
+    private final Set<DeletePhase> completed;
+    private final boolean resumed;
+
+    private Entry(String id, FileBasedConfig cfg, Set<DeletePhase> completed, boolean resumed) {
+      this.id = id;
+      this.cfg = cfg;
+      this.completed = completed;
+      this.resumed = resumed;
+    }
+
+    String getId() {
+      return id;
+    }
+
+    Project.NameKey getProject() {
+      return Project.nameKey(cfg.getString(SECTION, null, KEY_PROJECT));
+    }
+
+    Account.Id getAccountId() {
+      return Account.id(cfg.getInt(SECTION, null, KEY_ACCOUNT, 0));
+    }
+
+    Input getInput() {
+      Input input = new Input();
+      input.preserve = cfg.getBoolean(SECTION, null, KEY_PRESERVE, false);
+      input.force = cfg.getBoolean(SECTION, null, KEY_FORCE, false);
+      return input;
+    }
+
+    /** Whether this deletion was started before the last restart of the server. */
+    boolean isResumed() {
+      return resumed;
+    }
+
+    /** Whether this deletion failed. */
+    boolean isFailed() {
+      return cfg.getBoolean(SECTION, null, KEY_FAILED, false);
+    }
+
+    synchronized boolean isCompleted(DeletePhase phase) {
+      return completed.contains(phase);
+    }
+
+    synchronized void completed(DeletePhase phase) {
+      completed.add(phase);
+      cfg.setStringList(
+          SECTION,
+          null,
+          KEY_COMPLETED,
+          completed.stream().map(DeletePhase::name).collect(toList()));
+      try {
+        cfg.save();
+      } catch (IOException e) {
+        log.atWarning().withCause(e).log(
+            "Failed to record phase %s of the deletion of %s", phase, getProject());
+      }
+    }
+
+    /**
+     * Records the end of this deletion. The journal is removed if the deletion succeeded, and
+     * marked as failed otherwise.
+     *
+     * @param failure the failure of the deletion, or null if it succeeded.
+     */
+    synchronized void finish(@Nullable Exception failure) {
+      if (failure == null) {
+        discard();
+        return;
+      }
+      cfg.setBoolean(SECTION, null, KEY_FAILED, true);
+      try {
+        cfg.save();
+      } catch (IOException e) {
+        log.atWarning().withCause(e).log(
+            "Failed to record the failure of the deletion of %s", getProject());
+      }
+    }
+
+    /** Removes the journal of this deletion. */
+    void discard() {
+      try {
+        Files.deleteIfExists(cfg.getFile().toPath());
+      } catch (IOException e) {
+        log.atWarning().withCause(e).log("Failed to remove deletion journal %s", cfg.getFile());
+      }
+    }
+  }
+}
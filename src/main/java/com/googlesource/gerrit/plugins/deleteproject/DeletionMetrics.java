@@ -0,0 +1,183 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer0;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/** Metrics of the project deletions, exported under the plugin's metric namespace. */
+@Singleton
+public class DeletionMetrics {
+  private final ImmutableMap<DeletePhase, Timer0> phaseLatency;
+
+  public final Timer0 renameLatency;
+  public final Timer0 recursiveDeleteLatency;
+  public final Timer0 archiveCopyLatency;
+  public final Timer0 listenersLatency;
+  public final Timer0 indexPurgeLatency;
+  public final Timer0 allUsersGcLatency;
+
+  public final Counter0 changesUnstarred;
+  public final Counter0 starsRemoved;
+  public final Counter0 userRefsPurged;
+  public final Counter0 watchesRemoved;
+  public final Counter0 filesFreed;
+  public final Counter0 bytesFreed;
+  public final Counter0 archiveBytesDeduplicated;
+  public final Counter0 indexDocumentsPurged;
+  public final Counter0 failures;
+  public final Counter0 orphansPurged;
+  public final Counter0 projectsRestored;
+  public final Counter0 changesReindexed;
+
+  @Inject
+  public DeletionMetrics(MetricMaker metricMaker) {
+    phaseLatency =
+        Arrays.stream(DeletePhase.values())
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    Function.identity(),
+                    p -> {
+                      String name = p.name().toLowerCase(Locale.US);
+                      return newTimer(
+                          metricMaker,
+                          "deletion/" + name + "_latency",
+                          "Time spent in the " + name + " phase of a project deletion");
+                    }));
+
+    renameLatency =
+        newTimer(
+            metricMaker,
+            "filesystem/rename_latency",
+            "Time spent renaming a deleted repository into the trash or archive folder");
+    recursiveDeleteLatency =
+        newTimer(
+            metricMaker,
+            "filesystem/recursive_delete_latency",
+            "Time spent recursively deleting a repository folder");
+    archiveCopyLatency =
+        newTimer(
+            metricMaker,
+            "filesystem/archive_copy_latency",
+            "Time spent copying a deleted repository into the archive folder");
+    listenersLatency =
+        newTimer(
+            metricMaker,
+            "filesystem/listeners_latency",
+            "Time spent notifying the project deleted listeners");
+    indexPurgeLatency =
+        newTimer(
+            metricMaker,
+            "index/purge_latency",
+            "Time spent purging the changes of a deleted project from the index in the background");
+
+    allUsersGcLatency =
+        newTimer(
+            metricMaker,
+            "all_users/gc_latency",
+            "Time spent garbage collecting All-Users after deletions");
+
+    changesUnstarred =
+        metricMaker.newCounter(
+            "deletion/changes_unstarred",
+            new Description("Number of changes unstarred because their project was deleted")
+                .setRate()
+                .setUnit("changes"));
+    starsRemoved =
+        metricMaker.newCounter(
+            "deletion/stars_removed",
+            new Description("Number of stars removed from the changes of deleted projects")
+                .setRate()
+                .setUnit("stars"));
+    userRefsPurged =
+        metricMaker.newCounter(
+            "deletion/user_refs_purged",
+            new Description("Number of All-Users refs of the changes of deleted projects purged")
+                .setRate()
+                .setUnit("refs"));
+    watchesRemoved =
+        metricMaker.newCounter(
+            "deletion/watches_removed",
+            new Description("Number of project watches removed because the project was deleted")
+                .setRate()
+                .setUnit("watches"));
+    filesFreed =
+        metricMaker.newCounter(
+            "filesystem/files_freed",
+            new Description("Number of files deleted from deleted repositories")
+                .setRate()
+                .setUnit("files"));
+    bytesFreed =
+        metricMaker.newCounter(
+            "filesystem/bytes_freed",
+            new Description("Number of bytes freed by deleting repositories")
+                .setRate()
+                .setUnit(Units.BYTES));
+    archiveBytesDeduplicated =
+        metricMaker.newCounter(
+            "filesystem/archive_bytes_deduplicated",
+            new Description("Number of bytes of archived pack files which were already archived")
+                .setRate()
+                .setUnit(Units.BYTES));
+    indexDocumentsPurged =
+        metricMaker.newCounter(
+            "index/documents_purged",
+            new Description("Number of changes of deleted projects purged from the index")
+                .setRate()
+                .setUnit("changes"));
+    failures =
+        metricMaker.newCounter(
+            "deletion/failures",
+            new Description("Number of project deletions which failed")
+                .setRate()
+                .setUnit("failures"));
+    orphansPurged =
+        metricMaker.newCounter(
+            "sweeper/orphans_purged",
+            new Description("Number of orphaned projects whose leftover data was purged")
+                .setRate()
+                .setUnit("projects"));
+    projectsRestored =
+        metricMaker.newCounter(
+            "restore/projects_restored",
+            new Description("Number of deleted projects restored from the archive or the trash")
+                .setRate()
+                .setUnit("projects"));
+    changesReindexed =
+        metricMaker.newCounter(
+            "restore/changes_reindexed",
+            new Description("Number of changes of restored projects reindexed")
+                .setRate()
+                .setUnit("changes"));
+  }
+
+  public Timer0 phaseLatency(DeletePhase phase) {
+    return phaseLatency.get(phase);
+  }
+
+  private static Timer0 newTimer(MetricMaker metricMaker, String name, String description) {
+    return metricMaker.newTimer(
+        name, new Description(description).setCumulative().setUnit(Units.MILLISECONDS));
+  }
+}
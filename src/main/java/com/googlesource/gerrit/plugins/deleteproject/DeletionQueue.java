@@ -0,0 +1,330 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static com.google.common.base.CaseFormat.UPPER_CAMEL;
+import static com.google.common.base.CaseFormat.UPPER_UNDERSCORE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.project.ProjectResource;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.OneOffRequestContext;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Deletion;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Executes project deletions in the background, so that the caller does not have to wait until all
+ * the phases of the deletion are completed.
+ *
+ * <p>The deletions go through a pipeline with one stage per {@link DeletePhase}. Every stage has
+ * its own work queue, and hands the deletion over to the stage of the next phase when done. This
+ * way one project can be in the filesystem phase while the next one is in the index phase, and the
+ * throughput of many deletions is limited by the slowest stage rather than by the sum of all of
+ * them. The number of deletions queued on the work queue of a stage is bounded; the deletions
+ * which exceed it wait in the backlog of the stage, so that neither the caller submitting a new
+ * deletion nor the threads of the stage before are ever blocked by a slow stage.
+ */
+@Singleton
+class DeletionQueue implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject";
+  private static final Duration FINISHED_TASK_RETENTION = Duration.ofDays(1);
+
+  private final WorkQueue workQueue;
+  private final Configuration cfg;
+  private final Provider<DeleteProject> deleteProject;
+  private final OneOffRequestContext requestContext;
+  private final DeletePreconditions preConditions;
+  private final DeletionJournal journal;
+  private final Map<String, DeletionTask> tasks = new ConcurrentHashMap<>();
+  private final Map<DeletePhase, Stage> stages = new EnumMap<>(DeletePhase.class);
+
+  private interface Start {
+    Deletion start() throws Exception;
+  }
+
+  /** A job of a stage, which returns the hand-off of the deletion to the next stage, if any. */
+  private interface Job {
+    @Nullable
+    Runnable run();
+  }
+
+  /**
+   * A stage of the pipeline, which runs one phase of the deletions. The deletions which exceed the
+   * capacity of the stage wait in its backlog, in the order in which they arrived.
+   */
+  private static class Stage {
+    private final ScheduledExecutorService executor;
+    private final int capacity;
+    private final Deque<Job> backlog = new ArrayDeque<>();
+    private int admitted;
+
+    Stage(ScheduledExecutorService executor, int capacity) {
+      this.executor = executor;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Hands a deletion over to this stage without waiting: the deletion is queued on the work
+     * queue of the stage if the stage has capacity for it, and waits in the backlog otherwise.
+     *
+     * @throws RejectedExecutionException if the stage is stopped.
+     */
+    synchronized void handOff(Job job) {
+      if (admitted < capacity) {
+        submit(job);
+      } else {
+        backlog.add(job);
+      }
+    }
+
+    private void submit(Job job) {
+      executor.submit(() -> run(job));
+      admitted++;
+    }
+
+    /**
+     * Runs a job, and releases its place in this stage before the deletion is handed off to the
+     * next stage.
+     */
+    private void run(Job job) {
+      Runnable handOff;
+      try {
+        handOff = job.run();
+      } finally {
+        release();
+      }
+      if (handOff != null) {
+        handOff.run();
+      }
+    }
+
+    private synchronized void release() {
+      admitted--;
+      Job next = backlog.poll();
+      if (next == null) {
+        return;
+      }
+      try {
+        submit(next);
+      } catch (RejectedExecutionException e) {
+        log.atWarning().log(
+            "Stage is stopped, dropping %d waiting deletions; the started ones are resumed on the"
+                + " next start",
+            backlog.size() + 1);
+        backlog.clear();
+      }
+    }
+
+    void shutdown() {
+      executor.shutdown();
+    }
+  }
+
+  @Inject
+  DeletionQueue(
+      WorkQueue workQueue,
+      Configuration cfg,
+      Provider<DeleteProject> deleteProject,
+      OneOffRequestContext requestContext,
+      DeletePreconditions preConditions,
+      DeletionJournal journal) {
+    this.workQueue = workQueue;
+    this.cfg = cfg;
+    this.deleteProject = deleteProject;
+    this.requestContext = requestContext;
+    this.preConditions = preConditions;
+    this.journal = journal;
+  }
+
+  @Override
+  public void start() {
+    for (DeletePhase phase : DeletePhase.values()) {
+      int threads = cfg.getStageThreads(phase);
+      stages.put(
+          phase,
+          new Stage(
+              workQueue.createQueue(
+                  threads, QUEUE_NAME + "-" + UPPER_UNDERSCORE.to(UPPER_CAMEL, phase.name())),
+              threads + cfg.getStageQueueSize()));
+    }
+    for (DeletionJournal.Entry entry : journal.pending()) {
+      log.atInfo().log("Resuming interrupted deletion of project %s", entry.getProject());
+      resume(entry);
+    }
+  }
+
+  @Override
+  public void stop() {
+    stages.values().forEach(Stage::shutdown);
+  }
+
+  /**
+   * Enqueues the deletion of a project, without waiting for its first stage to have capacity for
+   * it. The preconditions of the deletion must have been checked by the caller.
+   *
+   * @return the task which tracks the state of the deletion.
+   */
+  DeletionTask submit(ProjectResource rsrc, Input input) {
+    return submit(rsrc, input, false);
+  }
+
+  /**
+   * Enqueues the deletion of a project, without waiting for its first stage to have capacity for
+   * it. The preconditions of the deletion are checked by the background thread before the deletion
+   * is started, and cause the task to fail when not met.
+   *
+   * @return the task which tracks the state of the deletion.
+   */
+  DeletionTask submitAndVerify(ProjectResource rsrc, Input input) {
+    return submit(rsrc, input, true);
+  }
+
+  private DeletionTask submit(ProjectResource rsrc, Input input, boolean verify) {
+    DeletionTask task =
+        newTask(
+            UUID.randomUUID().toString(),
+            rsrc.getNameKey(),
+            rsrc.getUser().getAccountId(),
+            input);
+    execute(
+        task,
+        input,
+        () -> {
+          if (verify) {
+            preConditions.assertDeletePermission(rsrc);
+            preConditions.assertCanBeDeleted(rsrc, input);
+          }
+          return deleteProject.get().start(rsrc, input, task);
+        });
+    return task;
+  }
+
+  private void resume(DeletionJournal.Entry entry) {
+    DeletionTask task =
+        newTask(entry.getId(), entry.getProject(), entry.getAccountId(), entry.getInput());
+    execute(task, entry.getInput(), () -> deleteProject.get().resume(entry, task));
+  }
+
+  Optional<DeletionTask> get(String id) {
+    return Optional.ofNullable(tasks.get(id));
+  }
+
+  ImmutableList<DeletionTask> list() {
+    return ImmutableList.copyOf(tasks.values());
+  }
+
+  private DeletionTask newTask(
+      String id, Project.NameKey project, Account.Id accountId, Input input) {
+    pruneFinishedTasks();
+    DeletionTask task = new DeletionTask(id, project, accountId, phases(input).size());
+    tasks.put(id, task);
+    return task;
+  }
+
+  private ImmutableList<DeletePhase> phases(Input input) {
+    return DeletePhase.phases(input != null && input.preserve && cfg.projectOnPreserveHidden());
+  }
+
+  /** Enqueues a deletion into the stage of its first phase. */
+  private void execute(DeletionTask task, Input input, Start start) {
+    try {
+      stages.get(phases(input).get(0)).handOff(() -> start(task, start));
+    } catch (RejectedExecutionException e) {
+      task.failed(e);
+    }
+  }
+
+  @Nullable
+  private Runnable start(DeletionTask task, Start start) {
+    task.running();
+    Deletion deletion;
+    try (ManualRequestContext ctx = requestContext.openAs(task.getAccountId())) {
+      deletion = start.start();
+    } catch (Exception e) {
+      log.atSevere().withCause(e).log("Deletion of project %s failed", task.getProject());
+      task.failed(e);
+      return null;
+    }
+    return run(deletion, task, 0);
+  }
+
+  /**
+   * Runs a phase of a deletion.
+   *
+   * @return the hand-off of the deletion to the stage of its next phase, or null if the deletion
+   *     is complete.
+   */
+  @Nullable
+  private Runnable run(Deletion deletion, DeletionTask task, int index) {
+    ImmutableList<DeletePhase> phases = deletion.getPhases();
+    try (ManualRequestContext ctx = requestContext.openAs(task.getAccountId())) {
+      deletion.run(phases.get(index));
+    } catch (Exception e) {
+      complete(deletion, task, e);
+      return null;
+    }
+
+    int next = index + 1;
+    if (next == phases.size()) {
+      complete(deletion, task, null);
+      return null;
+    }
+    return () -> {
+      try {
+        stages.get(phases.get(next)).handOff(() -> run(deletion, task, next));
+      } catch (RejectedExecutionException e) {
+        complete(deletion, task, e);
+      }
+    };
+  }
+
+  private void complete(Deletion deletion, DeletionTask task, @Nullable Exception failure) {
+    try (ManualRequestContext ctx = requestContext.openAs(task.getAccountId())) {
+      deletion.finish(failure);
+    }
+    if (failure != null) {
+      log.atSevere().withCause(failure).log("Deletion of project %s failed", task.getProject());
+      task.failed(failure);
+    } else {
+      task.succeeded();
+    }
+  }
+
+  private void pruneFinishedTasks() {
+    Instant expiry = TimeMachine.now().minus(FINISHED_TASK_RETENTION);
+    tasks.values().removeIf(t -> t.isDone() && t.getFinished().isBefore(expiry));
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Project;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/** State of a project deletion which is executed in the background by {@link DeletionQueue}. */
+class DeletionTask implements DeletionProgress {
+  enum Status {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  private final String id;
+  private final Project.NameKey project;
+  private final Account.Id accountId;
+  private final int totalPhases;
+  private final Instant submitted;
+  private final SettableFuture<DeletionTask> result = SettableFuture.create();
+
+  private volatile Status status = Status.QUEUED;
+  private volatile DeletePhase phase;
+  private volatile int completedPhases;
+  private volatile Instant finished;
+  private volatile String error;
+
+  DeletionTask(String id, Project.NameKey project, Account.Id accountId, int totalPhases) {
+    this.id = id;
+    this.project = project;
+    this.accountId = accountId;
+    this.totalPhases = totalPhases;
+    this.submitted = TimeMachine.now();
+  }
+
+  String getId() {
+    return id;
+  }
+
+  Project.NameKey getProject() {
+    return project;
+  }
+
+  Account.Id getAccountId() {
+    return accountId;
+  }
+
+  Status getStatus() {
+    return status;
+  }
+
+  Instant getSubmitted() {
+    return submitted;
+  }
+
+  boolean isDone() {
+    return status == Status.SUCCEEDED || status == Status.FAILED;
+  }
+
+  Instant getFinished() {
+    return finished;
+  }
+
+  /** Returns a future which completes with this task when the deletion finished. */
+  ListenableFuture<DeletionTask> result() {
+    return result;
+  }
+
+  @Override
+  public void onPhaseStarted(DeletePhase phase) {
+    this.phase = phase;
+  }
+
+  @Override
+  public void onPhaseCompleted(DeletePhase phase) {
+    completedPhases++;
+  }
+
+  void running() {
+    status = Status.RUNNING;
+  }
+
+  void succeeded() {
+    finished = TimeMachine.now();
+    status = Status.SUCCEEDED;
+    result.set(this);
+  }
+
+  void failed(Exception e) {
+    error = e.getMessage() != null ? e.getMessage() : e.toString();
+    finished = TimeMachine.now();
+    status = Status.FAILED;
+    result.set(this);
+  }
+
+  DeletionTaskInfo toInfo() {
+    DeletionTaskInfo info = new DeletionTaskInfo();
+    info.id = id;
+    info.project = project.get();
+    info.status = status.name();
+    info.phase = phase != null ? phase.name() : null;
+    info.progress = totalPhases > 0 ? 100 * completedPhases / totalPhases : 0;
+    info.submitted = Timestamp.from(submitted);
+    info.finished = finished != null ? Timestamp.from(finished) : null;
+    info.error = error;
+    return info;
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.restapi.AuthException;
+import com.google.gerrit.extensions.restapi.ChildCollection;
+import com.google.gerrit.extensions.restapi.IdString;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
+import com.google.gerrit.extensions.restapi.RestView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+@Singleton
+class DeletionTasksCollection implements ChildCollection<ConfigResource, DeletionTaskResource> {
+  private final DynamicMap<RestView<DeletionTaskResource>> views;
+  private final Provider<ListDeletionTasks> list;
+  private final DeletionQueue queue;
+  private final DeletePreconditions preConditions;
+
+  @Inject
+  DeletionTasksCollection(
+      DynamicMap<RestView<DeletionTaskResource>> views,
+      Provider<ListDeletionTasks> list,
+      DeletionQueue queue,
+      DeletePreconditions preConditions) {
+    this.views = views;
+    this.list = list;
+    this.queue = queue;
+    this.preConditions = preConditions;
+  }
+
+  @Override
+  public RestView<ConfigResource> list() {
+    return list.get();
+  }
+
+  @Override
+  public DeletionTaskResource parse(ConfigResource parent, IdString id)
+      throws AuthException, ResourceNotFoundException {
+    preConditions.assertAuthenticated();
+    DeletionTask task =
+        queue
+            .get(id.get())
+            .filter(preConditions::canSeeTask)
+            .orElseThrow(() -> new ResourceNotFoundException(id));
+    return new DeletionTaskResource(task);
+  }
+
+  @Override
+  public DynamicMap<RestView<DeletionTaskResource>> views() {
+    return views;
+  }
+}
@@ -0,0 +1,58 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.inject.Singleton;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records how long the phases of the recent deletions took, relative to the amount of work they
+ * had to do, e.g. the number of changes which had to be unstarred. Used to estimate the duration
+ * of a deletion before it is started.
+ */
+@Singleton
+class DeletionTimings {
+  /** Weight of the latest sample in the moving average of a phase. */
+  private static final double WEIGHT = 0.2;
+
+  private final Map<DeletePhase, Double> millisPerUnit = new EnumMap<>(DeletePhase.class);
+
+  /**
+   * Records the duration of a phase.
+   *
+   * @param phase the phase which completed.
+   * @param units the amount of work done by the phase, at least 1.
+   * @param elapsed the time the phase took.
+   */
+  synchronized void record(DeletePhase phase, long units, Duration elapsed) {
+    double sample = (double) elapsed.toMillis() / Math.max(1, units);
+    millisPerUnit.merge(phase, sample, (avg, s) -> avg + WEIGHT * (s - avg));
+  }
+
+  /**
+   * Estimates the duration of a phase, or empty if no deletion executed the phase since the server
+   * was started.
+   */
+  synchronized Optional<Duration> estimate(DeletePhase phase, long units) {
+    Double avg = millisPerUnit.get(phase);
+    if (avg == null) {
+      return Optional.empty();
+    }
+    return Optional.of(Duration.ofMillis(Math.round(avg * Math.max(1, units))));
+  }
+}
@@ -26,7 +26,6 @@ import com.google.gerrit.server.git.meta.MetaDataUpdate;
 import com.google.gerrit.server.permissions.PermissionBackendException;
 import com.google.gerrit.server.project.ProjectCache;
 import com.google.gerrit.server.project.ProjectConfig;
-import com.google.gerrit.server.project.ProjectResource;
 import com.google.gerrit.server.restapi.project.CreateProject;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -57,8 +56,8 @@ class HideProject {
     this.projectConfigFactory = projectConfigFactory;
   }
 
-  public void apply(ProjectResource rsrc) throws IOException, RestApiException {
-    try (MetaDataUpdate md = metaDataUpdateFactory.create(rsrc.getNameKey())) {
+  public void apply(Project.NameKey project) throws IOException, RestApiException {
+    try (MetaDataUpdate md = metaDataUpdateFactory.create(project)) {
       ProjectConfig projectConfig = projectConfigFactory.read(md);
       projectConfig.updateProject(p -> p.setState(ProjectState.HIDDEN));
 
@@ -74,7 +73,7 @@ class HideProject {
       projectConfig.commit(md);
       projectCache.evictAndReindex(projectConfig.getProject());
     } catch (RepositoryNotFoundException e) {
-      throw new ResourceNotFoundException(rsrc.getNameKey().get(), e);
+      throw new ResourceNotFoundException(project.get(), e);
     } catch (ConfigInvalidException e) {
       throw new ResourceConflictException(e.getMessage());
     }
@@ -0,0 +1,47 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+import com.google.gerrit.extensions.restapi.AuthException;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import java.util.List;
+
+class ListDeletionTasks implements RestReadView<ConfigResource> {
+  private final DeletionQueue queue;
+  private final DeletePreconditions preConditions;
+
+  @Inject
+  ListDeletionTasks(DeletionQueue queue, DeletePreconditions preConditions) {
+    this.queue = queue;
+    this.preConditions = preConditions;
+  }
+
+  @Override
+  public Response<List<DeletionTaskInfo>> apply(ConfigResource rsrc) throws AuthException {
+    preConditions.assertAuthenticated();
+    return Response.ok(
+        queue.list().stream()
+            .filter(preConditions::canSeeTask)
+            .sorted(comparing(DeletionTask::getSubmitted))
+            .map(DeletionTask::toInfo)
+            .collect(toList()));
+  }
+}
@@ -0,0 +1,505 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.ProjectWatchKey;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.annotations.PluginData;
+import com.google.gerrit.server.account.AccountCache;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.account.Accounts;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.googlesource.gerrit.plugins.deleteproject.database.ChangeNumberSet;
+import com.googlesource.gerrit.plugins.deleteproject.database.DatabaseDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.database.IndexPurger;
+import com.googlesource.gerrit.plugins.deleteproject.database.StarredChangesRemover;
+import com.googlesource.gerrit.plugins.deleteproject.database.UserRefsRemover;
+import com.googlesource.gerrit.plugins.deleteproject.fs.AbstractScheduledTask;
+import com.googlesource.gerrit.plugins.deleteproject.fs.FilesystemDeleteHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * Periodically purges the data which failed or interrupted deletions left behind for projects that
+ * no longer exist.
+ *
+ * <p>Every run first takes over the journals of the failed deletions: the project of a failed
+ * deletion which no longer exists is recorded as orphaned, together with its repository if the
+ * deletion did not get to remove it. Then the orphaned projects found so far are purged: their
+ * index documents, All-Users refs and watches, and the repositories recorded from the journals.
+ *
+ * <p>Afterwards the run continues the sweep, which looks for orphaned data in several steps:
+ *
+ * <ol>
+ *   <li>The changes which have stars or draft comments in All-Users are looked up in the index,
+ *       and their project is recorded as orphaned if it no longer exists. The changes which are
+ *       not in the index, e.g. because a failed deletion already removed them from it, are kept as
+ *       candidates for the next step.
+ *   <li>The candidates are cross-checked against the refs of all the projects, and the All-Users
+ *       refs of the candidates which belong to no project are purged.
+ *   <li>The watches of all the accounts are checked, and the watches of projects which no longer
+ *       exist are removed.
+ *   <li>The repositories are checked, and the ones whose project cannot be loaded are reported.
+ *       They are only deleted if a failed deletion was recorded for them.
+ * </ol>
+ *
+ * <p>Every run stops once it exceeds its time budget. The current step, its cursor and the
+ * orphaned projects are persisted in the plugin data directory, so that the next run, possibly
+ * after a restart, resumes where this one stopped.
+ */
+public class OrphanSweeper extends AbstractScheduledTask {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String STATE_FILE = "orphans.config";
+  private static final String SECTION_SWEEP = "sweep";
+  private static final String KEY_STEP = "step";
+  private static final String KEY_CURSOR = "cursor";
+  private static final String KEY_UNINDEXED = "unindexed";
+  private static final String KEY_CANDIDATE = "candidate";
+  private static final String KEY_PROJECT = "project";
+  private static final String KEY_ACCOUNT = "account";
+  private static final String KEY_REPOSITORY = "repository";
+  private static final String SECTION_ORPHAN = "orphan";
+  private static final String KEY_FOUND = "found";
+  private static final int BATCH_SIZE = 1000;
+
+  /** The maximum number of changes which are cross-checked against the refs of all projects. */
+  @VisibleForTesting static final int MAX_CANDIDATES = 1000;
+
+  /** The steps of the sweep, in the order in which they are run. */
+  @VisibleForTesting
+  enum Step {
+    INDEX,
+    CHANGES,
+    WATCHES,
+    REPOSITORIES
+  }
+
+  private final DatabaseDeleteHandler dbHandler;
+  private final FilesystemDeleteHandler fsHandler;
+  private final StarredChangesRemover starredChangesRemover;
+  private final UserRefsRemover userRefsRemover;
+  private final Accounts accounts;
+  private final AccountCache accountCache;
+  private final IndexPurger indexPurger;
+  private final DeletionJournal journal;
+  private final ProjectCache projectCache;
+  private final GitRepositoryManager repoManager;
+  private final Provider<InternalChangeQuery> queryProvider;
+  private final DeletionMetrics metrics;
+  private final long maxTime;
+  private final FileBasedConfig state;
+
+  @Inject
+  OrphanSweeper(
+      WorkQueue workQueue,
+      Configuration cfg,
+      @PluginData File pluginData,
+      DatabaseDeleteHandler dbHandler,
+      FilesystemDeleteHandler fsHandler,
+      StarredChangesRemover starredChangesRemover,
+      UserRefsRemover userRefsRemover,
+      Accounts accounts,
+      AccountCache accountCache,
+      IndexPurger indexPurger,
+      DeletionJournal journal,
+      ProjectCache projectCache,
+      GitRepositoryManager repoManager,
+      Provider<InternalChangeQuery> queryProvider,
+      DeletionMetrics metrics) {
+    super(workQueue, cfg.getSchedule());
+    this.dbHandler = dbHandler;
+    this.fsHandler = fsHandler;
+    this.starredChangesRemover = starredChangesRemover;
+    this.userRefsRemover = userRefsRemover;
+    this.accounts = accounts;
+    this.accountCache = accountCache;
+    this.indexPurger = indexPurger;
+    this.journal = journal;
+    this.projectCache = projectCache;
+    this.repoManager = repoManager;
+    this.queryProvider = queryProvider;
+    this.metrics = metrics;
+    this.maxTime = cfg.getOrphanSweepMaxTime();
+    this.state = new FileBasedConfig(new File(pluginData, STATE_FILE), FS.DETECTED);
+  }
+
+  @Override
+  public synchronized void run() {
+    log.atInfo().log("Sweeping orphaned data of deleted projects");
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      state.load();
+      takeOverFailedDeletions();
+      if (purgeOrphans(stopwatch)) {
+        sweep(stopwatch);
+      }
+    } catch (IOException | ConfigInvalidException | RuntimeException e) {
+      log.atSevere().withCause(e).log("Failed to sweep orphaned data of deleted projects");
+    }
+    log.atInfo().log("Sweeping orphaned data of deleted projects done in %s", stopwatch);
+  }
+
+  /**
+   * Records the projects of the failed deletions which no longer exist as orphaned, and discards
+   * the journals of the failed deletions. The deletion of a project which still exists can be
+   * retried by the user.
+   */
+  private void takeOverFailedDeletions() {
+    for (DeletionJournal.Entry entry : journal.failed()) {
+      Project.NameKey project = entry.getProject();
+      if (projectCache.get(project).isEmpty()) {
+        log.atInfo().log("Found orphaned data of the failed deletion of project %s", project);
+        recordOrphan(project);
+        if (!entry.getInput().preserve && repositoryExists(project)) {
+          state.setBoolean(SECTION_ORPHAN, project.get(), KEY_REPOSITORY, true);
+        }
+        save();
+      }
+      entry.discard();
+    }
+  }
+
+  /** Runs the steps of the sweep, starting with the one where the previous run stopped. */
+  private void sweep(Stopwatch stopwatch) throws IOException {
+    Step[] steps = Step.values();
+    Step step = state.getEnum(SECTION_SWEEP, null, KEY_STEP, steps[0]);
+    while (runStep(step, stopwatch)) {
+      step = steps[(step.ordinal() + 1) % steps.length];
+      state.setEnum(SECTION_SWEEP, null, KEY_STEP, step);
+      save();
+      if (step == steps[0]) {
+        return;
+      }
+    }
+  }
+
+  /** Runs a step of the sweep, and returns whether it was completed within the time budget. */
+  private boolean runStep(Step step, Stopwatch stopwatch) throws IOException {
+    switch (step) {
+      case INDEX:
+        return findOrphans(stopwatch);
+      case CHANGES:
+        return checkUnindexedChanges(stopwatch);
+      case WATCHES:
+        return checkWatches(stopwatch);
+      case REPOSITORIES:
+        return checkRepositories(stopwatch);
+    }
+    throw new IllegalStateException("Unknown step " + step);
+  }
+
+  /**
+   * Records the projects of the changes with data in All-Users which no longer exist, as found in
+   * the index, and keeps the changes which are not in the index as candidates.
+   *
+   * @return whether all the changes were checked within the time budget.
+   */
+  private boolean findOrphans(Stopwatch stopwatch) throws IOException {
+    ChangeNumberSet changes =
+        starredChangesRemover.getStarredChanges().union(userRefsRemover.getChangesWithRefs());
+    int cursor = state.getInt(SECTION_SWEEP, KEY_CURSOR, 0);
+    while (true) {
+      if (exceededMaxTime(stopwatch)) {
+        return false;
+      }
+      ImmutableList<Change.Id> batch = changes.after(cursor, BATCH_SIZE);
+      if (batch.isEmpty()) {
+        state.unset(SECTION_SWEEP, null, KEY_CURSOR);
+        save();
+        return true;
+      }
+      Set<Change.Id> unindexed = new LinkedHashSet<>(batch);
+      for (ChangeData cd : queryProvider.get().byLegacyChangeIds(batch)) {
+        unindexed.remove(cd.getId());
+        Project.NameKey project = cd.project();
+        if (isOrphaned(project) && !state.getSubsections(SECTION_ORPHAN).contains(project.get())) {
+          log.atInfo().log("Found orphaned data of deleted project %s", project);
+          recordOrphan(project);
+        }
+      }
+      Set<Change.Id> candidates = getChangeIds(KEY_UNINDEXED);
+      int limit = Math.max(0, MAX_CANDIDATES - candidates.size());
+      Iterables.addAll(candidates, Iterables.limit(unindexed, limit));
+      setChangeIds(KEY_UNINDEXED, candidates);
+      cursor = batch.get(batch.size() - 1).get();
+      state.setInt(SECTION_SWEEP, KEY_CURSOR, cursor);
+      save();
+    }
+  }
+
+  /**
+   * Cross-checks the changes which have data in All-Users but are not in the index against the
+   * refs of all the projects, and purges the data of the changes which belong to no project.
+   *
+   * @return whether all the projects were checked within the time budget.
+   */
+  private boolean checkUnindexedChanges(Stopwatch stopwatch) throws IOException {
+    Set<Change.Id> candidates = getChangeIds(KEY_CANDIDATE);
+    if (candidates.isEmpty()) {
+      candidates = getChangeIds(KEY_UNINDEXED);
+      if (candidates.isEmpty()) {
+        return true;
+      }
+      setChangeIds(KEY_CANDIDATE, candidates);
+      state.unset(SECTION_SWEEP, null, KEY_UNINDEXED);
+      state.unset(SECTION_SWEEP, null, KEY_PROJECT);
+      save();
+    }
+
+    String cursor = state.getString(SECTION_SWEEP, null, KEY_PROJECT);
+    NavigableSet<Project.NameKey> projects = projectCache.all();
+    if (cursor != null) {
+      projects = projects.tailSet(Project.nameKey(cursor), false);
+    }
+    for (Project.NameKey project : projects) {
+      if (candidates.isEmpty()) {
+        break;
+      }
+      if (exceededMaxTime(stopwatch)) {
+        setChangeIds(KEY_CANDIDATE, candidates);
+        save();
+        return false;
+      }
+      try (Repository repo = repoManager.openRepository(project)) {
+        RefDatabase refDb = repo.getRefDatabase();
+        for (Iterator<Change.Id> it = candidates.iterator(); it.hasNext(); ) {
+          if (refDb.exactRef(RefNames.changeMetaRef(it.next())) != null) {
+            it.remove();
+          }
+        }
+      } catch (RepositoryNotFoundException e) {
+        // The project was deleted since the project list was read.
+      }
+      state.setString(SECTION_SWEEP, null, KEY_PROJECT, project.get());
+    }
+
+    if (!candidates.isEmpty()) {
+      // A change which was indexed meanwhile belongs to a project which was created meanwhile.
+      for (ChangeData cd : queryProvider.get().byLegacyChangeIds(candidates)) {
+        candidates.remove(cd.getId());
+      }
+      int removed = dbHandler.purgeOrphanedChanges(candidates);
+      log.atInfo().log(
+          "Purged %d All-Users refs of %d changes which belong to no project",
+          removed, candidates.size());
+    }
+    state.unset(SECTION_SWEEP, null, KEY_CANDIDATE);
+    state.unset(SECTION_SWEEP, null, KEY_PROJECT);
+    save();
+    return true;
+  }
+
+  /**
+   * Removes the watches of projects which no longer exist from all the accounts, batch by batch of
+   * accounts.
+   *
+   * @return whether all the accounts were checked within the time budget.
+   */
+  private boolean checkWatches(Stopwatch stopwatch) throws IOException {
+    int cursor = state.getInt(SECTION_SWEEP, KEY_ACCOUNT, 0);
+    List<Account.Id> accountIds =
+        accounts.allIds().stream()
+            .filter(id -> id.get() > cursor)
+            .sorted(comparing(Account.Id::get))
+            .collect(toList());
+    for (List<Account.Id> batch : Lists.partition(accountIds, BATCH_SIZE)) {
+      if (exceededMaxTime(stopwatch)) {
+        return false;
+      }
+      Map<Project.NameKey, Boolean> orphaned = new HashMap<>();
+      ListMultimap<Project.NameKey, AccountState> watchers =
+          MultimapBuilder.treeKeys().arrayListValues().build();
+      for (AccountState a : accountCache.get(ImmutableSet.copyOf(batch)).values()) {
+        a.projectWatches().keySet().stream()
+            .map(ProjectWatchKey::project)
+            .distinct()
+            .filter(p -> orphaned.computeIfAbsent(p, this::isOrphaned))
+            .forEach(p -> watchers.put(p, a));
+      }
+      for (Project.NameKey project : watchers.keySet()) {
+        try {
+          int removed = dbHandler.deleteOrphanedWatches(project, watchers.get(project));
+          log.atInfo().log("Removed %d watches of orphaned project %s", removed, project);
+        } catch (IOException e) {
+          log.atWarning().withCause(e).log(
+              "Failed to remove the watches of orphaned project %s", project);
+        }
+      }
+      state.setInt(SECTION_SWEEP, KEY_ACCOUNT, Iterables.getLast(batch).get());
+      save();
+    }
+    state.unset(SECTION_SWEEP, null, KEY_ACCOUNT);
+    save();
+    return true;
+  }
+
+  /**
+   * Reports the repositories whose project cannot be loaded. They are not deleted, unless they were
+   * recorded from the journal of a failed deletion.
+   *
+   * @return whether all the repositories were checked within the time budget.
+   */
+  private boolean checkRepositories(Stopwatch stopwatch) {
+    String cursor = state.getString(SECTION_SWEEP, null, KEY_REPOSITORY);
+    NavigableSet<Project.NameKey> repositories = repoManager.list();
+    if (cursor != null) {
+      repositories = repositories.tailSet(Project.nameKey(cursor), false);
+    }
+    for (Project.NameKey project : repositories) {
+      if (exceededMaxTime(stopwatch)) {
+        save();
+        return false;
+      }
+      if (projectCache.get(project).isEmpty()
+          && !state.getSubsections(SECTION_ORPHAN).contains(project.get())) {
+        log.atWarning().log(
+            "Repository of project %s exists, but the project cannot be loaded", project);
+      }
+      state.setString(SECTION_SWEEP, null, KEY_REPOSITORY, project.get());
+    }
+    state.unset(SECTION_SWEEP, null, KEY_REPOSITORY);
+    save();
+    return true;
+  }
+
+  /**
+   * Purges the data of the orphaned projects found so far.
+   *
+   * @return whether all the orphaned projects were purged within the time budget.
+   */
+  private boolean purgeOrphans(Stopwatch stopwatch) {
+    for (String name : new TreeSet<>(state.getSubsections(SECTION_ORPHAN))) {
+      if (exceededMaxTime(stopwatch)) {
+        return false;
+      }
+      Project.NameKey project = Project.nameKey(name);
+      if (indexPurger.isTombstoned(project)) {
+        continue;
+      }
+      if (isOrphaned(project)) {
+        try {
+          Project orphan = Project.builder(project).build();
+          if (state.getBoolean(SECTION_ORPHAN, name, KEY_REPOSITORY, false)
+              && repositoryExists(project)) {
+            dbHandler.unstarChanges(orphan);
+            dbHandler.purgeUserRefs(orphan);
+            fsHandler.delete(project, false);
+            log.atInfo().log("Deleted the repository of orphaned project %s", project);
+          }
+          int changes = dbHandler.deleteOrphan(orphan);
+          metrics.orphansPurged.increment();
+          log.atInfo().log("Purged %d changes of orphaned project %s", changes, project);
+        } catch (IOException e) {
+          log.atWarning().withCause(e).log("Failed to purge orphaned project %s", project);
+          continue;
+        }
+      }
+      state.unsetSection(SECTION_ORPHAN, name);
+      save();
+    }
+    return true;
+  }
+
+  /**
+   * Whether a project no longer exists, and is not being purged from the index by the {@link
+   * IndexPurger} already.
+   */
+  @VisibleForTesting
+  boolean isOrphaned(Project.NameKey project) {
+    return projectCache.get(project).isEmpty() && !indexPurger.isTombstoned(project);
+  }
+
+  private void recordOrphan(Project.NameKey project) {
+    state.setLong(SECTION_ORPHAN, project.get(), KEY_FOUND, TimeMachine.now().toEpochMilli());
+  }
+
+  private boolean repositoryExists(Project.NameKey project) {
+    try {
+      repoManager.openRepository(project).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private Set<Change.Id> getChangeIds(String key) {
+    Set<Change.Id> changeIds = new TreeSet<>(comparing(Change.Id::get));
+    Arrays.stream(state.getStringList(SECTION_SWEEP, null, key))
+        .map(Change.Id::tryParse)
+        .flatMap(Optional::stream)
+        .forEach(changeIds::add);
+    return changeIds;
+  }
+
+  private void setChangeIds(String key, Set<Change.Id> changeIds) {
+    List<String> values =
+        changeIds.stream().map(id -> Integer.toString(id.get())).collect(toList());
+    state.setStringList(SECTION_SWEEP, null, key, values);
+  }
+
+  private boolean exceededMaxTime(Stopwatch stopwatch) {
+    if (stopwatch.elapsed(TimeUnit.SECONDS) >= maxTime) {
+      log.atInfo().log("Stopping early: exceeded max duration (%d s), resuming next run", maxTime);
+      return true;
+    }
+    return false;
+  }
+
+  private void save() {
+    try {
+      state.save();
+    } catch (IOException e) {
+      log.atWarning().withCause(e).log("Failed to save orphan sweeper state %s", state.getFile());
+    }
+  }
+}
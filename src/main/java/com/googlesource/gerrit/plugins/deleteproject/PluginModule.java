@@ -14,30 +14,44 @@
 
 package com.googlesource.gerrit.plugins.deleteproject;
 
+import static com.google.gerrit.server.config.ConfigResource.CONFIG_KIND;
 import static com.google.gerrit.server.project.ProjectResource.PROJECT_KIND;
 import static com.googlesource.gerrit.plugins.deleteproject.DeleteOwnProjectCapability.DELETE_OWN_PROJECT;
 import static com.googlesource.gerrit.plugins.deleteproject.DeleteProjectCapability.DELETE_PROJECT;
+import static com.googlesource.gerrit.plugins.deleteproject.DeletionTaskResource.DELETION_TASK_KIND;
 
 import com.google.gerrit.extensions.annotations.Exports;
 import com.google.gerrit.extensions.config.CapabilityDefinition;
 import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.events.NewProjectCreatedListener;
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.extensions.restapi.RestApiModule;
 import com.google.gerrit.server.events.EventTypes;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.internal.UniqueAnnotations;
 import com.googlesource.gerrit.plugins.deleteproject.cache.CacheDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.database.AllUsersCompactor;
+import com.googlesource.gerrit.plugins.deleteproject.database.ChangeReindexer;
+import com.googlesource.gerrit.plugins.deleteproject.database.IndexPurger;
+import com.googlesource.gerrit.plugins.deleteproject.fs.ArchiveCopier;
+import com.googlesource.gerrit.plugins.deleteproject.fs.ArchiveDeduplicator;
 import com.googlesource.gerrit.plugins.deleteproject.fs.ArchiveRepositoryRemover;
 import com.googlesource.gerrit.plugins.deleteproject.fs.DeleteTrashFolders;
+import com.googlesource.gerrit.plugins.deleteproject.fs.DeletionPool;
 import com.googlesource.gerrit.plugins.deleteproject.fs.FilesystemDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.fs.TrashReaper;
 
 public class PluginModule extends AbstractModule {
 
   private final boolean scheduleCleaning;
+  private final boolean sweepOrphans;
 
   @Inject
   PluginModule(Configuration config) {
     this.scheduleCleaning = config.getArchiveDuration() > 0;
+    this.sweepOrphans = config.sweepOrphans();
   }
 
   @Override
@@ -46,6 +60,24 @@ public class PluginModule extends AbstractModule {
     bind(LifecycleListener.class)
         .annotatedWith(UniqueAnnotations.create())
         .to(DeleteTrashFolders.class);
+    bind(LifecycleListener.class)
+        .annotatedWith(UniqueAnnotations.create())
+        .to(DeletionQueue.class);
+    bind(LifecycleListener.class).annotatedWith(UniqueAnnotations.create()).to(TrashReaper.class);
+    bind(LifecycleListener.class).annotatedWith(UniqueAnnotations.create()).to(RestoreQueue.class);
+    bind(LifecycleListener.class).annotatedWith(UniqueAnnotations.create()).to(DeletionPool.class);
+    bind(LifecycleListener.class).annotatedWith(UniqueAnnotations.create()).to(ArchiveCopier.class);
+    bind(LifecycleListener.class)
+        .annotatedWith(UniqueAnnotations.create())
+        .to(ArchiveDeduplicator.class);
+    bind(LifecycleListener.class).annotatedWith(UniqueAnnotations.create()).to(IndexPurger.class);
+    DynamicSet.bind(binder(), NewProjectCreatedListener.class).to(IndexPurger.class);
+    bind(LifecycleListener.class)
+        .annotatedWith(UniqueAnnotations.create())
+        .to(AllUsersCompactor.class);
+    bind(LifecycleListener.class)
+        .annotatedWith(UniqueAnnotations.create())
+        .to(ChangeReindexer.class);
     bind(CacheDeleteHandler.class);
     bind(CapabilityDefinition.class)
         .annotatedWith(Exports.named(DELETE_PROJECT))
@@ -60,6 +92,11 @@ public class PluginModule extends AbstractModule {
           .annotatedWith(UniqueAnnotations.create())
           .to(ArchiveRepositoryRemover.class);
     }
+    if (sweepOrphans) {
+      bind(LifecycleListener.class)
+          .annotatedWith(UniqueAnnotations.create())
+          .to(OrphanSweeper.class);
+    }
 
     EventTypes.register(ProjectDeletedEvent.TYPE, ProjectDeletedEvent.class);
 
@@ -69,6 +106,13 @@ public class PluginModule extends AbstractModule {
           protected void configure() {
             delete(PROJECT_KIND).to(DeleteProject.class);
             post(PROJECT_KIND, "delete").to(DeleteAction.class);
+
+            post(CONFIG_KIND, "delete-projects").to(DeleteProjects.class);
+            post(CONFIG_KIND, "restore-project").to(RestoreProject.class);
+
+            DynamicMap.mapOf(binder(), DELETION_TASK_KIND);
+            child(CONFIG_KIND, "deletion-tasks").to(DeletionTasksCollection.class);
+            get(DELETION_TASK_KIND).to(GetDeletionTask.class);
           }
         });
   }
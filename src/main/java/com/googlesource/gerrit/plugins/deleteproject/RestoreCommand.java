@@ -0,0 +1,61 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.sshd.CommandMetaData;
+import com.google.gerrit.sshd.SshCommand;
+import com.google.inject.Inject;
+import java.io.IOException;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+@CommandMetaData(name = "restore", description = "Restore a deleted project")
+final class RestoreCommand extends SshCommand {
+  @Argument(index = 0, required = true, metaVar = "NAME", usage = "project to restore")
+  private String projectName;
+
+  @Option(name = "--async", usage = "restore the project in the background")
+  private boolean async;
+
+  private final RestoreProject restoreProject;
+  private final DeletePreconditions preConditions;
+
+  @Inject
+  RestoreCommand(RestoreProject restoreProject, DeletePreconditions preConditions) {
+    this.restoreProject = restoreProject;
+    this.preConditions = preConditions;
+  }
+
+  @Override
+  public void run() throws Failure {
+    try {
+      preConditions.assertRestorePermission();
+      if (async) {
+        RestoreInfo info = restoreProject.submit(Project.nameKey(projectName));
+        stdout.print(String.format("Restore of %s queued\n", info.project));
+        return;
+      }
+      RestoreInfo info = restoreProject.restore(Project.nameKey(projectName));
+      stdout.print(
+          String.format(
+              "Restored %s from %s, reindexed %d changes\n",
+              info.project, info.restoredFrom, info.changesReindexed));
+    } catch (RestApiException | IOException e) {
+      throw die(e);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
+
+import com.google.common.base.Strings;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.ResourceConflictException;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.extensions.restapi.RestModifyView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.database.ChangeReindexer;
+import com.googlesource.gerrit.plugins.deleteproject.database.IndexPurger;
+import com.googlesource.gerrit.plugins.deleteproject.fs.RepositoryRestore;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+
+/**
+ * Restores a deleted project from the archive folder, or from the trash folder if its repository
+ * was not deleted yet. The repository is moved back into place, the project is registered again
+ * with the project cache, and its changes are reindexed. Restores requested with the {@code async}
+ * option are executed in the background by the {@link RestoreQueue}.
+ *
+ * <p>The stars, watches and draft comments of the project's changes are deleted with the project,
+ * and are not restored.
+ */
+@Singleton
+class RestoreProject implements RestModifyView<ConfigResource, RestoreProject.Input> {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  static class Input {
+    String project;
+    boolean async;
+  }
+
+  private final DeletePreconditions preConditions;
+  private final RepositoryRestore repositoryRestore;
+  private final ProjectCache projectCache;
+  private final IndexPurger indexPurger;
+  private final ChangeReindexer reindexer;
+  private final DeletionMetrics metrics;
+  private final RestoreQueue restoreQueue;
+
+  @Inject
+  RestoreProject(
+      DeletePreconditions preConditions,
+      RepositoryRestore repositoryRestore,
+      ProjectCache projectCache,
+      IndexPurger indexPurger,
+      ChangeReindexer reindexer,
+      DeletionMetrics metrics,
+      RestoreQueue restoreQueue) {
+    this.preConditions = preConditions;
+    this.repositoryRestore = repositoryRestore;
+    this.projectCache = projectCache;
+    this.indexPurger = indexPurger;
+    this.reindexer = reindexer;
+    this.metrics = metrics;
+    this.restoreQueue = restoreQueue;
+  }
+
+  @Override
+  public Response<RestoreInfo> apply(ConfigResource rsrc, Input input)
+      throws IOException, RestApiException {
+    preConditions.assertRestorePermission();
+    if (input == null || Strings.isNullOrEmpty(input.project)) {
+      throw new BadRequestException("project is required");
+    }
+    Project.NameKey project = Project.nameKey(input.project);
+    if (input.async) {
+      return Response.withStatusCode(SC_ACCEPTED, submit(project));
+    }
+    return Response.ok(restore(project));
+  }
+
+  /**
+   * Enqueues the restore of a project, which is executed in the background.
+   *
+   * @return the project which is restored; the repository which it is restored from and the number
+   *     of reindexed changes are only known once the restore completed.
+   */
+  RestoreInfo submit(Project.NameKey project) throws ResourceConflictException {
+    checkNotExists(project);
+    restoreQueue.submit(project);
+    RestoreInfo info = new RestoreInfo();
+    info.project = project.get();
+    return info;
+  }
+
+  RestoreInfo restore(Project.NameKey project) throws IOException, RestApiException {
+    checkNotExists(project);
+    Path restoredFrom;
+    try {
+      restoredFrom = repositoryRestore.restore(project);
+    } catch (RepositoryNotFoundException e) {
+      throw new ResourceNotFoundException(
+          String.format("No archived or deleted repository of project %s found", project.get()),
+          e);
+    } catch (FileAlreadyExistsException e) {
+      throw new ResourceConflictException(
+          String.format("Repository of project %s exists", project.get()));
+    }
+    metrics.projectsRestored.increment();
+
+    indexPurger.cancel(project);
+    projectCache.onCreateProject(project);
+    projectCache.evictAndReindex(project);
+
+    RestoreInfo info = new RestoreInfo();
+    info.project = project.get();
+    info.restoredFrom = restoredFrom.getFileName().toString();
+    info.changesReindexed = reindexer.reindex(project);
+    log.atInfo().log(
+        "Restored project %s from %s and reindexed %d changes",
+        project, restoredFrom, info.changesReindexed);
+    return info;
+  }
+
+  private void checkNotExists(Project.NameKey project) throws ResourceConflictException {
+    if (projectCache.get(project).isPresent()) {
+      throw new ResourceConflictException(String.format("Project %s exists", project.get()));
+    }
+  }
+}
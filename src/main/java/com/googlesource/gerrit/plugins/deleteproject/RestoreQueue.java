@@ -0,0 +1,80 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Executes project restores in the background, so that the caller does not have to wait until the
+ * repository is moved back into place and the changes of the project are reindexed.
+ */
+@Singleton
+class RestoreQueue implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-Restore";
+
+  private final WorkQueue workQueue;
+  private final Provider<RestoreProject> restoreProject;
+  private volatile ScheduledExecutorService executor;
+
+  @Inject
+  RestoreQueue(WorkQueue workQueue, Provider<RestoreProject> restoreProject) {
+    this.workQueue = workQueue;
+    this.restoreProject = restoreProject;
+  }
+
+  @Override
+  public void start() {
+    executor = workQueue.createQueue(1, QUEUE_NAME);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Enqueues the restore of a project. Failures of the restore are logged.
+   *
+   * @throws RejectedExecutionException if the queue is not running.
+   */
+  void submit(Project.NameKey project) {
+    ScheduledExecutorService e = executor;
+    if (e == null) {
+      throw new RejectedExecutionException("Restore queue is not running");
+    }
+    e.submit(
+        () -> {
+          try {
+            restoreProject.get().restore(project);
+          } catch (RestApiException | IOException | RuntimeException ex) {
+            log.atSevere().withCause(ex).log("Restore of project %s failed", project);
+          }
+        });
+  }
+}
@@ -27,5 +27,6 @@ public class SshModule extends PluginCommandModule {
   @Override
   protected void configureCommands() {
     command(DeleteCommand.class);
+    command(RestoreCommand.class);
   }
 }
@@ -0,0 +1,153 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.git.GarbageCollection;
+import com.google.gerrit.server.git.GarbageCollectionResult;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import com.googlesource.gerrit.plugins.deleteproject.TimeMachine;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Garbage collects All-Users in the background once the deletions removed enough of its refs, so
+ * that the deleted refs and the loose objects of the deletions do not slow down the fetches and
+ * ref advertisements of All-Users.
+ *
+ * <p>The garbage collection is throttled: it runs at most once per configured interval, and the
+ * churn which builds up in the meantime is handled by the next run.
+ */
+@Singleton
+public class AllUsersCompactor implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-AllUsersGc";
+
+  private final GarbageCollection.Factory gcFactory;
+  private final AllUsersName allUsers;
+  private final WorkQueue workQueue;
+  private final DeletionMetrics metrics;
+  private final long threshold;
+  private final long minInterval;
+  private final AtomicLong churn = new AtomicLong();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private volatile Instant lastGc = Instant.EPOCH;
+  private volatile ScheduledExecutorService executor;
+
+  @Inject
+  AllUsersCompactor(
+      GarbageCollection.Factory gcFactory,
+      AllUsersName allUsers,
+      WorkQueue workQueue,
+      Configuration cfg,
+      DeletionMetrics metrics,
+      MetricMaker metricMaker) {
+    this.gcFactory = gcFactory;
+    this.allUsers = allUsers;
+    this.workQueue = workQueue;
+    this.metrics = metrics;
+    this.threshold = cfg.getAllUsersGcThreshold();
+    this.minInterval = cfg.getAllUsersGcMinInterval();
+    metricMaker.newCallbackMetric(
+        "all_users/pending_churn",
+        Long.class,
+        new Description("Number of All-Users refs removed by deletions since the last gc")
+            .setGauge()
+            .setUnit("refs"),
+        churn::get);
+  }
+
+  @Override
+  public void start() {
+    if (threshold > 0) {
+      executor = workQueue.createQueue(1, QUEUE_NAME);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Records refs of All-Users which were removed or rewritten by a deletion, and schedules the
+   * garbage collection of All-Users if the churn reached the configured threshold.
+   */
+  public void recordChurn(long refs) {
+    if (threshold <= 0 || refs <= 0) {
+      return;
+    }
+    if (churn.addAndGet(refs) >= threshold) {
+      schedule();
+    }
+  }
+
+  private void schedule() {
+    ScheduledExecutorService e = executor;
+    if (e == null || !scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    long delay =
+        Math.max(0, Duration.between(TimeMachine.now(), lastGc.plusMillis(minInterval)).toMillis());
+    try {
+      @SuppressWarnings("unused")
+      ScheduledFuture<?> possiblyIgnoredError = e.schedule(this::gc, delay, MILLISECONDS);
+      log.atFine().log("Scheduled gc of %s in %d ms", allUsers, delay);
+    } catch (RejectedExecutionException ex) {
+      scheduled.set(false);
+    }
+  }
+
+  private void gc() {
+    long refs = churn.getAndSet(0);
+    log.atInfo().log("Running gc of %s after deletions removed %d refs", allUsers, refs);
+    try (Timer0.Context ctx = metrics.allUsersGcLatency.start()) {
+      GarbageCollectionResult result =
+          gcFactory.create().run(ImmutableList.<Project.NameKey>of(allUsers));
+      if (result.hasErrors()) {
+        log.atWarning().log("Gc of %s failed with %d errors", allUsers, result.getErrors().size());
+      }
+    } catch (RuntimeException e) {
+      log.atSevere().withCause(e).log("Gc of %s failed", allUsers);
+    } finally {
+      lastGc = TimeMachine.now();
+      scheduled.set(false);
+    }
+    if (churn.get() >= threshold) {
+      schedule();
+    }
+  }
+}
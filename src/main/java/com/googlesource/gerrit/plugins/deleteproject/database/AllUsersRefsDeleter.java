@@ -0,0 +1,170 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.server.GerritPersonIdent;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+/**
+ * Deletes refs of All-Users which are keyed by change, such as the starred-changes refs or the
+ * draft comments refs, in a few batch ref updates rather than with one ref update per change. A
+ * ref-updated event is fired for every batch ref update, so that the deletions are replicated.
+ */
+@Singleton
+class AllUsersRefsDeleter {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  private final GitRepositoryManager repoManager;
+  private final AllUsersName allUsers;
+  private final Provider<PersonIdent> serverIdent;
+  private final GitReferenceUpdated gitRefUpdated;
+
+  @Inject
+  AllUsersRefsDeleter(
+      GitRepositoryManager repoManager,
+      AllUsersName allUsers,
+      @GerritPersonIdent Provider<PersonIdent> serverIdent,
+      GitReferenceUpdated gitRefUpdated) {
+    this.repoManager = repoManager;
+    this.allUsers = allUsers;
+    this.serverIdent = serverIdent;
+    this.gitRefUpdated = gitRefUpdated;
+  }
+
+  /**
+   * Opens a session which deletes the refs of changes as they are passed in.
+   *
+   * @param refLogMessage the reflog message of the batch ref updates.
+   * @param batchSize the number of pending ref deletions at which they are executed. The refs of a
+   *     change are always deleted by the same batch ref update.
+   * @param deletedRefs the counter of the deleted refs.
+   * @throws IOException if All-Users cannot be opened.
+   */
+  Session open(String refLogMessage, int batchSize, Counter0 deletedRefs) throws IOException {
+    return new Session(repoManager.openRepository(allUsers), refLogMessage, batchSize, deletedRefs);
+  }
+
+  /** Deletes refs of changes. The pending ref deletions are executed by {@link #flush()}. */
+  class Session implements AutoCloseable {
+    private final Repository repo;
+    private final String refLogMessage;
+    private final int batchSize;
+    private final Counter0 deletedRefs;
+    private final ListMultimap<Change.Id, ReceiveCommand> commands =
+        MultimapBuilder.linkedHashKeys().arrayListValues().build();
+    private int removed;
+    private int deletedChanges;
+
+    private Session(Repository repo, String refLogMessage, int batchSize, Counter0 deletedRefs) {
+      this.repo = repo;
+      this.refLogMessage = refLogMessage;
+      this.batchSize = batchSize;
+      this.deletedRefs = deletedRefs;
+    }
+
+    RefDatabase getRefDatabase() {
+      return repo.getRefDatabase();
+    }
+
+    /**
+     * Queues the deletion of refs of a change, and executes the pending ref deletions once there
+     * are at least as many as the batch size.
+     */
+    void delete(Change.Id changeId, List<Ref> refs) throws IOException {
+      for (Ref ref : refs) {
+        commands.put(
+            changeId, new ReceiveCommand(ref.getObjectId(), ObjectId.zeroId(), ref.getName()));
+      }
+      if (commands.size() >= batchSize) {
+        flush();
+      }
+    }
+
+    /** Executes the pending ref deletions. */
+    void flush() throws IOException {
+      if (commands.isEmpty()) {
+        return;
+      }
+      BatchRefUpdate update = repo.getRefDatabase().newBatchUpdate();
+      update.setAtomic(false);
+      update.setAllowNonFastForwards(true);
+      update.setRefLogIdent(serverIdent.get());
+      update.setRefLogMessage(refLogMessage, true);
+      update.addCommand(commands.values());
+      try (RevWalk rw = new RevWalk(repo)) {
+        update.execute(rw, NullProgressMonitor.INSTANCE);
+      }
+      gitRefUpdated.fire(allUsers, update, null);
+
+      int deleted = 0;
+      for (Collection<ReceiveCommand> changeCommands : commands.asMap().values()) {
+        boolean changeDeleted = true;
+        for (ReceiveCommand command : changeCommands) {
+          if (command.getResult() == ReceiveCommand.Result.OK) {
+            deleted++;
+          } else {
+            log.atWarning().log(
+                "Failed to delete %s: %s %s",
+                command.getRefName(), command.getResult(), command.getMessage());
+            changeDeleted = false;
+          }
+        }
+        if (changeDeleted) {
+          deletedChanges++;
+        }
+      }
+      commands.clear();
+      deletedRefs.incrementBy(deleted);
+      removed += deleted;
+    }
+
+    /** Returns the number of refs which were deleted so far. */
+    int getRemoved() {
+      return removed;
+    }
+
+    /** Returns the number of changes whose refs were all deleted so far. */
+    int getDeletedChanges() {
+      return deletedChanges;
+    }
+
+    @Override
+    public void close() {
+      repo.close();
+    }
+  }
+}
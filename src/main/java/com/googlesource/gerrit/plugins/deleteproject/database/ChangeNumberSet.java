@@ -0,0 +1,118 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Change;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Compact set of change numbers, stored as a sorted array of ints. Built from the refs of
+ * All-Users which are sharded by change, e.g. {@code refs/starred-changes/45/12345/1000001}.
+ */
+public class ChangeNumberSet {
+  private final int[] numbers;
+
+  private ChangeNumberSet(int[] numbers) {
+    this.numbers = numbers;
+  }
+
+  /**
+   * Collects the change numbers of refs sharded by change.
+   *
+   * @param refs refs whose names start with {@code prefix}.
+   * @param prefix the prefix of the refs, followed by the shard and the change number.
+   */
+  static ChangeNumberSet fromRefs(List<Ref> refs, String prefix) {
+    int[] numbers = new int[refs.size()];
+    int n = 0;
+    for (Ref ref : refs) {
+      int number = parseChangeNumber(ref.getName(), prefix);
+      if (number > 0) {
+        numbers[n++] = number;
+      }
+    }
+    Arrays.sort(numbers, 0, n);
+
+    int distinct = 0;
+    for (int i = 0; i < n; i++) {
+      if (distinct == 0 || numbers[distinct - 1] != numbers[i]) {
+        numbers[distinct++] = numbers[i];
+      }
+    }
+    return new ChangeNumberSet(Arrays.copyOf(numbers, distinct));
+  }
+
+  /** Returns the set of the change numbers which are in this set or in the other set. */
+  public ChangeNumberSet union(ChangeNumberSet other) {
+    int[] merged = new int[numbers.length + other.numbers.length];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < numbers.length || j < other.numbers.length) {
+      int next;
+      if (j == other.numbers.length || (i < numbers.length && numbers[i] <= other.numbers[j])) {
+        next = numbers[i++];
+      } else {
+        next = other.numbers[j++];
+      }
+      if (n == 0 || merged[n - 1] != next) {
+        merged[n++] = next;
+      }
+    }
+    return new ChangeNumberSet(Arrays.copyOf(merged, n));
+  }
+
+  /**
+   * Returns the changes of this set whose numbers are greater than {@code after}, in ascending
+   * order.
+   *
+   * @param after the number after which the changes are returned, 0 to start from the first one.
+   * @param limit the maximum number of changes returned.
+   */
+  public ImmutableList<Change.Id> after(int after, int limit) {
+    int start = Arrays.binarySearch(numbers, after);
+    start = start >= 0 ? start + 1 : -start - 1;
+    ImmutableList.Builder<Change.Id> ids = ImmutableList.builder();
+    for (int i = start; i < numbers.length && i < start + limit; i++) {
+      ids.add(Change.id(numbers[i]));
+    }
+    return ids.build();
+  }
+
+  public boolean contains(Change.Id id) {
+    return Arrays.binarySearch(numbers, id.get()) >= 0;
+  }
+
+  public int size() {
+    return numbers.length;
+  }
+
+  private static int parseChangeNumber(String ref, String prefix) {
+    int start = ref.indexOf('/', prefix.length());
+    if (!ref.startsWith(prefix) || start < 0) {
+      return -1;
+    }
+    start++;
+    int end = ref.indexOf('/', start);
+    try {
+      return Integer.parseInt(end < 0 ? ref.substring(start) : ref.substring(start, end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
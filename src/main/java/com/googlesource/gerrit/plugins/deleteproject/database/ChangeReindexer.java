@@ -0,0 +1,147 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.Lists;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.index.change.ChangeIndexer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reindexes all the changes of a restored project. The changes are enumerated from their meta refs
+ * and reindexed in batches, which are executed in parallel on a dedicated work queue.
+ */
+@Singleton
+public class ChangeReindexer implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-Reindex";
+
+  private final ChangeIndexer indexer;
+  private final GitRepositoryManager repoManager;
+  private final WorkQueue workQueue;
+  private final Configuration cfg;
+  private final DeletionMetrics metrics;
+  private volatile ScheduledExecutorService executor;
+
+  @Inject
+  ChangeReindexer(
+      ChangeIndexer indexer,
+      GitRepositoryManager repoManager,
+      WorkQueue workQueue,
+      Configuration cfg,
+      DeletionMetrics metrics) {
+    this.indexer = indexer;
+    this.repoManager = repoManager;
+    this.workQueue = workQueue;
+    this.cfg = cfg;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void start() {
+    executor = workQueue.createQueue(cfg.getReindexThreads(), QUEUE_NAME);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Reindexes all the changes of a project, and waits until they are reindexed.
+   *
+   * @return the number of changes which were reindexed.
+   */
+  public int reindex(Project.NameKey project) throws IOException {
+    List<Change.Id> ids;
+    try (Repository repo = repoManager.openRepository(project)) {
+      ids =
+          repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CHANGES).stream()
+              .map(Ref::getName)
+              .filter(RefNames::isNoteDbMetaRef)
+              .map(Change.Id::fromRef)
+              .collect(toList());
+    }
+
+    List<Future<Integer>> batches = new ArrayList<>();
+    for (List<Change.Id> batch : Lists.partition(ids, cfg.getReindexBatchSize())) {
+      batches.add(submit(project, batch));
+    }
+    int reindexed = 0;
+    for (Future<Integer> batch : batches) {
+      try {
+        reindexed += batch.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while reindexing " + project);
+      } catch (ExecutionException e) {
+        log.atWarning().withCause(e.getCause()).log("Failed to reindex changes of %s", project);
+      }
+    }
+    log.atInfo().log("Reindexed %d of %d changes of project %s", reindexed, ids.size(), project);
+    return reindexed;
+  }
+
+  private Future<Integer> submit(Project.NameKey project, List<Change.Id> batch) {
+    ScheduledExecutorService e = executor;
+    if (e != null) {
+      try {
+        return e.submit(() -> index(project, batch));
+      } catch (RejectedExecutionException ex) {
+        log.atFine().log("Reindexer is stopped, reindexing changes of %s inline", project);
+      }
+    }
+    return Futures.immediateFuture(index(project, batch));
+  }
+
+  private int index(Project.NameKey project, List<Change.Id> batch) {
+    int indexed = 0;
+    for (Change.Id id : batch) {
+      try {
+        indexer.index(project, id);
+        indexed++;
+        metrics.changesReindexed.increment();
+      } catch (RuntimeException e) {
+        log.atWarning().withCause(e).log("Failed to reindex change %s of project %s", id, project);
+      }
+    }
+    return indexed;
+  }
+}
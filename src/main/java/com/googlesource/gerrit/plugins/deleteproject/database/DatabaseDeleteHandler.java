@@ -14,15 +14,19 @@
 
 package com.googlesource.gerrit.plugins.deleteproject.database;
 
-import static java.util.Collections.singleton;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.ProjectWatchKey;
-import com.google.gerrit.server.StarredChangesWriter;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.server.StarredChangesReader;
 import com.google.gerrit.server.UserInitiated;
 import com.google.gerrit.server.account.AccountState;
 import com.google.gerrit.server.account.AccountsUpdate;
@@ -30,88 +34,432 @@ import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.gerrit.server.index.change.ChangeIndexer;
 import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.notedb.ChangeNotes.Factory.ChangeNotesResult;
-import com.google.gerrit.server.project.NoSuchChangeException;
 import com.google.gerrit.server.query.account.InternalAccountQuery;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 
 public class DatabaseDeleteHandler {
   private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  @VisibleForTesting static final int CHANGE_SHARDS = 100;
+  private static final int CHUNK_SIZE = 1000;
+  private static final String DELETE_WATCHES_MESSAGE = "Delete Project Watches via API";
 
-  private final StarredChangesWriter starredChangesWriter;
+  private interface ChunkConsumer {
+    void accept(List<Change.Id> chunk) throws IOException;
+  }
+
+  private final StarredChangesReader starredChangesReader;
   private final ChangeIndexer indexer;
   private final Provider<InternalAccountQuery> accountQueryProvider;
+  private final Provider<InternalChangeQuery> changeQueryProvider;
   private final Provider<AccountsUpdate> accountsUpdateProvider;
   private final ChangeNotes.Factory schemaFactoryNoteDb;
   private final GitRepositoryManager repoManager;
+  private final DeletionMetrics metrics;
+  private final StarredChangesRemover starredChangesRemover;
+  private final UserRefsRemover userRefsRemover;
+  private final IndexPurger indexPurger;
+  private final AllUsersCompactor allUsersCompactor;
+  private final Configuration config;
 
   @Inject
   public DatabaseDeleteHandler(
-      StarredChangesWriter starredChangesWriter,
+      StarredChangesReader starredChangesReader,
       ChangeIndexer indexer,
       ChangeNotes.Factory schemaFactoryNoteDb,
       GitRepositoryManager repoManager,
       Provider<InternalAccountQuery> accountQueryProvider,
-      @UserInitiated Provider<AccountsUpdate> accountsUpdateProvider) {
-    this.starredChangesWriter = starredChangesWriter;
+      Provider<InternalChangeQuery> changeQueryProvider,
+      @UserInitiated Provider<AccountsUpdate> accountsUpdateProvider,
+      DeletionMetrics metrics,
+      StarredChangesRemover starredChangesRemover,
+      UserRefsRemover userRefsRemover,
+      IndexPurger indexPurger,
+      AllUsersCompactor allUsersCompactor,
+      Configuration config) {
+    this.starredChangesReader = starredChangesReader;
     this.indexer = indexer;
     this.accountQueryProvider = accountQueryProvider;
+    this.changeQueryProvider = changeQueryProvider;
     this.accountsUpdateProvider = accountsUpdateProvider;
     this.schemaFactoryNoteDb = schemaFactoryNoteDb;
     this.repoManager = repoManager;
+    this.metrics = metrics;
+    this.starredChangesRemover = starredChangesRemover;
+    this.userRefsRemover = userRefsRemover;
+    this.indexPurger = indexPurger;
+    this.allUsersCompactor = allUsersCompactor;
+    this.config = config;
   }
 
   public void delete(Project project) throws IOException {
-    indexer.deleteAllForProject(project.getNameKey());
-    unstarChanges(getChangesListFromNoteDb(project));
+    deleteFromIndex(project);
+    unstarChanges(project);
+    purgeUserRefs(project);
     deleteProjectWatches(project);
   }
 
-  private List<Change.Id> getChangesListFromNoteDb(Project project) throws IOException {
-    Project.NameKey projectKey = project.getNameKey();
-    try (Repository repo = repoManager.openRepository(projectKey)) {
-      List<Change.Id> changeIds =
-          schemaFactoryNoteDb.scan(repo, projectKey).map(ChangeNotesResult::id).collect(toList());
-      log.atFine().log(
-          "Number of changes in noteDb related to project %s are %d",
-          projectKey.get(), changeIds.size());
-      return changeIds;
+  /**
+   * Removes the changes of a project from the index, or tombstones the project if the removal is
+   * deferred to the {@link IndexPurger}.
+   */
+  public void deleteFromIndex(Project project) {
+    if (config.deferIndexPurge()) {
+      indexPurger.tombstone(project.getNameKey());
+    } else {
+      indexer.deleteAllForProject(project.getNameKey());
     }
   }
 
-  private void unstarChanges(List<Change.Id> changeIds) {
-    for (Change.Id id : changeIds) {
-      try {
-        starredChangesWriter.unstarAllForChangeDeletion(id);
-      } catch (NoSuchChangeException | IOException e) {
-        // we can ignore the exception during delete
+  /**
+   * Unstars all the changes of a project and returns the number of changes which were starred and
+   * got unstarred.
+   */
+  public int unstarChanges(Project project) throws IOException {
+    try (StarredChangesRemover.Session session =
+        starredChangesRemover.open(project.getNameKey(), config.getUnstarBatchSize())) {
+      forEachChangeIdChunk(project, session::unstar);
+      session.flush();
+      allUsersCompactor.recordChurn(session.getRemoved());
+      return session.getUnstarred();
+    }
+  }
+
+  /**
+   * Deletes the refs of All-Users which are keyed by the changes of a project, such as their draft
+   * comments, and returns the number of deleted refs.
+   */
+  public int purgeUserRefs(Project project) throws IOException {
+    try (UserRefsRemover.Session session =
+        userRefsRemover.open(project.getNameKey(), config.getUserRefsBatchSize())) {
+      forEachChangeIdChunk(project, session::purge);
+      session.flush();
+      allUsersCompactor.recordChurn(session.getRemoved());
+      return session.getRemoved();
+    }
+  }
+
+  /**
+   * Removes the data of a project whose repository no longer exists, e.g. because its deletion
+   * failed after the repository was removed. The changes of the project are looked up in the index
+   * page by page, and removed from it once their data in All-Users is purged.
+   *
+   * @return the number of changes.
+   */
+  public int deleteOrphan(Project project) throws IOException {
+    Project.NameKey projectKey = project.getNameKey();
+    Set<Change.Id> purged = new HashSet<>();
+    try (StarredChangesRemover.Session stars =
+            starredChangesRemover.open(projectKey, config.getUnstarBatchSize());
+        UserRefsRemover.Session userRefs =
+            userRefsRemover.open(projectKey, config.getUserRefsBatchSize())) {
+      while (true) {
+        List<Change.Id> page = new ArrayList<>();
+        for (ChangeData cd : changeQueryProvider.get().setLimit(CHUNK_SIZE).byProject(projectKey)) {
+          if (purged.add(cd.getId())) {
+            page.add(cd.getId());
+          }
+        }
+        if (page.isEmpty()) {
+          break;
+        }
+        stars.unstar(page);
+        stars.flush();
+        userRefs.purge(page);
+        userRefs.flush();
+        page.forEach(indexer::delete);
       }
+      allUsersCompactor.recordChurn(stars.getRemoved() + userRefs.getRemoved());
     }
+    indexer.deleteAllForProject(projectKey);
+    deleteProjectWatches(project);
+    return purged.size();
   }
 
-  private void deleteProjectWatches(Project project) {
+  /**
+   * Purges the data in All-Users of changes which belong to no existing project, and whose project
+   * is not known, e.g. because they are no longer in the index.
+   *
+   * @return the number of deleted refs.
+   */
+  public int purgeOrphanedChanges(Collection<Change.Id> changeIds) throws IOException {
+    try (StarredChangesRemover.Session stars =
+            starredChangesRemover.openForOrphanedChanges(config.getUnstarBatchSize());
+        UserRefsRemover.Session userRefs =
+            userRefsRemover.openForOrphanedChanges(config.getUserRefsBatchSize())) {
+      stars.unstar(changeIds);
+      stars.flush();
+      userRefs.purge(changeIds);
+      userRefs.flush();
+      int removed = stars.getRemoved() + userRefs.getRemoved();
+      allUsersCompactor.recordChurn(removed);
+      return removed;
+    }
+  }
+
+  /** What the deletion of a project removes from All-Users, as estimated by {@link #estimate}. */
+  public static class Impact {
+    /** The number of changes of the project in NoteDb. */
+    public int changes;
+
+    /** The number of changes of the project which are starred by at least one user. */
+    public int starredChanges;
+
+    /** The accounts which starred at least one change of the project. */
+    public final Set<Account.Id> starringAccounts = new HashSet<>();
+
+    /** The number of refs keyed by the changes of the project, such as their draft comments. */
+    public int userRefs;
+
+    /** The number of accounts which watch the project. */
+    public int watchers;
+
+    /** The number of watches of the project. */
+    public int watches;
+  }
+
+  /**
+   * Estimates what the deletion of a project removes from All-Users, in the same units as the
+   * deletion reports them, with a single pass over the changes of the project.
+   */
+  public Impact estimate(Project project) throws IOException {
+    Impact impact = new Impact();
+    ChangeNumberSet starred = starredChangesRemover.getStarredChanges();
+    try (UserRefsRemover.Session userRefs =
+        userRefsRemover.open(project.getNameKey(), config.getUserRefsBatchSize())) {
+      impact.changes =
+          forEachChangeIdChunk(
+              project,
+              chunk -> {
+                for (Change.Id id : chunk) {
+                  if (starred.contains(id)) {
+                    impact.starredChanges++;
+                    impact.starringAccounts.addAll(starredChangesReader.byChange(id));
+                  }
+                }
+                impact.userRefs += userRefs.count(chunk);
+              });
+    } catch (RepositoryNotFoundException e) {
+      // The repository was deleted already, its changes cannot be enumerated.
+    }
     for (AccountState a : accountQueryProvider.get().byWatchedProject(project.getNameKey())) {
-      Account.Id accountId = a.account().id();
-      for (ProjectWatchKey watchKey : a.projectWatches().keySet()) {
-        if (project.getNameKey().equals(watchKey.project())) {
-          try {
-            accountsUpdateProvider
-                .get()
-                .update(
-                    "Delete Project Watches via API",
-                    accountId,
-                    u -> u.deleteProjectWatches(singleton(watchKey)));
-          } catch (IOException | ConfigInvalidException e) {
-            log.atSevere().withCause(e).log(
-                "Removing watch entry for user %s in project %s failed.",
-                a.userName().orElse("[unknown]"), project.getName());
-          }
+      impact.watchers++;
+      impact.watches += getWatchKeys(a, project.getNameKey()).size();
+    }
+    return impact;
+  }
+
+  /**
+   * Passes the ids of all the changes of a project to a consumer, in chunks of bounded size, so
+   * that the ids of all the changes never have to be held in memory at once.
+   *
+   * @return the number of changes.
+   */
+  private int forEachChangeIdChunk(Project project, ChunkConsumer consumer) throws IOException {
+    Project.NameKey projectKey = project.getNameKey();
+    int changes = 0;
+    try (Repository repo = repoManager.openRepository(projectKey)) {
+      if (config.enumerateChangesFromRefs()) {
+        for (int shard = 0; shard < CHANGE_SHARDS; shard++) {
+          changes += forEachChunk(getChangeIdsOfShard(repo, shard).iterator(), consumer);
+        }
+      } else {
+        try (Stream<ChangeNotesResult> notes = schemaFactoryNoteDb.scan(repo, projectKey)) {
+          changes += forEachChunk(notes.map(ChangeNotesResult::id).iterator(), consumer);
         }
       }
     }
+    log.atFine().log(
+        "Number of changes in noteDb related to project %s are %d", projectKey.get(), changes);
+    return changes;
+  }
+
+  /**
+   * Returns the ids of the changes in one shard of {@code refs/changes/}, derived from the names of
+   * their meta refs without reading the notes. Refs whose name is not a valid change ref of the
+   * shard are ignored.
+   */
+  @VisibleForTesting
+  static List<Change.Id> getChangeIdsOfShard(Repository repo, int shard) throws IOException {
+    String prefix = String.format("%s%02d/", RefNames.REFS_CHANGES, shard);
+    return repo.getRefDatabase().getRefsByPrefix(prefix).stream()
+        .map(Ref::getName)
+        .filter(RefNames::isNoteDbMetaRef)
+        .map(Change.Id::fromRef)
+        .filter(Objects::nonNull)
+        .collect(toList());
+  }
+
+  private static int forEachChunk(Iterator<Change.Id> ids, ChunkConsumer consumer)
+      throws IOException {
+    int count = 0;
+    Iterator<List<Change.Id>> chunks = Iterators.partition(ids, CHUNK_SIZE);
+    while (chunks.hasNext()) {
+      List<Change.Id> chunk = chunks.next();
+      consumer.accept(chunk);
+      count += chunk.size();
+    }
+    return count;
+  }
+
+  /**
+   * Removes the watches of a project from all accounts and returns the number of watches.
+   *
+   * @throws IOException if the watches could not be removed from some of the accounts.
+   */
+  public int deleteProjectWatches(Project project) throws IOException {
+    int removed = deleteProjectWatchesInBatches(project, config.getWatchBatchSize());
+    allUsersCompactor.recordChurn(removed);
+    return removed;
+  }
+
+  /**
+   * Removes the watches of a project which no longer exists from accounts, e.g. the watches which
+   * a failed deletion left behind, and returns the number of watches.
+   *
+   * @throws IOException if the watches could not be removed from some of the accounts.
+   */
+  public int deleteOrphanedWatches(Project.NameKey project, List<AccountState> watchers)
+      throws IOException {
+    List<Account.Id> failed = new ArrayList<>();
+    int removed = 0;
+    for (List<AccountState> page :
+        Lists.partition(watchers, config.getWatchBatchSize())) {
+      removed += removeWatches(project, page, failed);
+    }
+    allUsersCompactor.recordChurn(removed);
+    checkWatchesRemoved(project, failed);
+    return removed;
+  }
+
+  /**
+   * Removes the watches of a project from all the accounts which watch it, page by page. The
+   * accounts which are updated are reindexed and no longer match the query, so every page starts
+   * after the accounts of the previous pages which still match it: the ones whose update failed,
+   * and the ones which were already seen, e.g. because their index document is stale.
+   */
+  private int deleteProjectWatchesInBatches(Project project, int batchSize) throws IOException {
+    Project.NameKey projectKey = project.getNameKey();
+    Set<Account.Id> seen = new HashSet<>();
+    List<Account.Id> failed = new ArrayList<>();
+    int removed = 0;
+    int start = 0;
+    while (true) {
+      List<AccountState> page =
+          accountQueryProvider
+              .get()
+              .setStart(start)
+              .setLimit(batchSize)
+              .byWatchedProject(projectKey);
+      if (page.isEmpty()) {
+        break;
+      }
+      List<AccountState> watchers = new ArrayList<>();
+      for (AccountState a : page) {
+        if (seen.add(a.account().id()) && !getWatchKeys(a, projectKey).isEmpty()) {
+          watchers.add(a);
+        } else {
+          start++;
+        }
+      }
+      int failedBefore = failed.size();
+      removed += removeWatches(projectKey, watchers, failed);
+      start += failed.size() - failedBefore;
+    }
+    checkWatchesRemoved(projectKey, failed);
+    return removed;
+  }
+
+  /**
+   * Removes the watches of a project from accounts with one {@link AccountsUpdate#updateBatch},
+   * which also reindexes the accounts. If the batch fails, the accounts are retried one by one, and
+   * the ones which still fail are added to {@code failed}.
+   *
+   * @return the number of watches which were removed.
+   */
+  private int removeWatches(
+      Project.NameKey project, List<AccountState> watchers, List<Account.Id> failed) {
+    if (watchers.isEmpty()) {
+      return 0;
+    }
+    List<AccountsUpdate.UpdateArguments> updates = new ArrayList<>();
+    int watches = 0;
+    for (AccountState a : watchers) {
+      Set<ProjectWatchKey> watchKeys = getWatchKeys(a, project);
+      updates.add(
+          new AccountsUpdate.UpdateArguments(
+              DELETE_WATCHES_MESSAGE, a.account().id(), u -> u.deleteProjectWatches(watchKeys)));
+      watches += watchKeys.size();
+    }
+
+    try {
+      accountsUpdateProvider.get().updateBatch(updates);
+      metrics.watchesRemoved.incrementBy(watches);
+      return watches;
+    } catch (IOException | ConfigInvalidException e) {
+      log.atWarning().withCause(e).log(
+          "Removing watches of %d accounts in project %s failed, retrying account by account.",
+          updates.size(), project.get());
+    }
+    int removed = 0;
+    for (AccountState a : watchers) {
+      Set<ProjectWatchKey> watchKeys = getWatchKeys(a, project);
+      if (deleteProjectWatches(a, project, watchKeys)) {
+        removed += watchKeys.size();
+      } else {
+        failed.add(a.account().id());
+      }
+    }
+    return removed;
+  }
+
+  private static void checkWatchesRemoved(Project.NameKey project, List<Account.Id> failed)
+      throws IOException {
+    if (!failed.isEmpty()) {
+      throw new IOException(
+          String.format(
+              "Failed to remove the watches of project %s from accounts %s",
+              project.get(), failed));
+    }
+  }
+
+  private static Set<ProjectWatchKey> getWatchKeys(AccountState a, Project.NameKey project) {
+    return a.projectWatches().keySet().stream()
+        .filter(k -> project.equals(k.project()))
+        .collect(toSet());
+  }
+
+  private boolean deleteProjectWatches(
+      AccountState a, Project.NameKey project, Set<ProjectWatchKey> watchKeys) {
+    try {
+      accountsUpdateProvider
+          .get()
+          .update(
+              DELETE_WATCHES_MESSAGE, a.account().id(), u -> u.deleteProjectWatches(watchKeys));
+      metrics.watchesRemoved.incrementBy(watchKeys.size());
+      return true;
+    } catch (IOException | ConfigInvalidException e) {
+      log.atSevere().withCause(e).log(
+          "Removing watch entry for user %s in project %s failed.",
+          a.userName().orElse("[unknown]"), project.get());
+      return false;
+    }
   }
 }
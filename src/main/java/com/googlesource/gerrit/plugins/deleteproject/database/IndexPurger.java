@@ -0,0 +1,265 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.annotations.PluginData;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.events.NewProjectCreatedListener;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.index.change.ChangeIndexer;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import com.googlesource.gerrit.plugins.deleteproject.TimeMachine;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * Removes the changes of deleted projects from the change index in the background, so that the
+ * duration of a deletion does not depend on the size of the index.
+ *
+ * <p>Deleted projects are recorded as tombstones in the plugin data directory until all their
+ * changes are purged from the index. The purge removes the changes page by page, and is resumed
+ * after a restart of the server.
+ *
+ * <p>The tombstones do not filter change queries, for which Gerrit has no extension point. Until
+ * they are purged, the changes of a deleted project are only hidden by the visibility check of the
+ * query results, which fails once the repository is deleted and the project is evicted from the
+ * project cache.
+ *
+ * <p>If a project with the name of a tombstoned project is created, the remaining changes of the
+ * deleted project are purged inline, before the new project has changes of its own.
+ */
+@Singleton
+public class IndexPurger implements LifecycleListener, NewProjectCreatedListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-IndexPurger";
+  private static final String TOMBSTONES_FILE = "index-tombstones.config";
+  private static final String SECTION = "tombstone";
+  private static final String KEY_CREATED = "created";
+
+  private final Provider<InternalChangeQuery> queryProvider;
+  private final ChangeIndexer indexer;
+  private final WorkQueue workQueue;
+  private final Configuration cfg;
+  private final DeletionMetrics metrics;
+  private final FileBasedConfig tombstones;
+
+  /**
+   * Serializes the deletion of every change by a purge with the cancellation of the purge, so that
+   * no change is deleted from the index after its purge was cancelled.
+   */
+  private final Object purgeLock = new Object();
+
+  private volatile ScheduledExecutorService executor;
+
+  @Inject
+  IndexPurger(
+      Provider<InternalChangeQuery> queryProvider,
+      ChangeIndexer indexer,
+      WorkQueue workQueue,
+      Configuration cfg,
+      DeletionMetrics metrics,
+      MetricMaker metricMaker,
+      @PluginData File pluginData) {
+    this.queryProvider = queryProvider;
+    this.indexer = indexer;
+    this.workQueue = workQueue;
+    this.cfg = cfg;
+    this.metrics = metrics;
+    this.tombstones = new FileBasedConfig(new File(pluginData, TOMBSTONES_FILE), FS.DETECTED);
+    metricMaker.newCallbackMetric(
+        "index/pending_purges",
+        Integer.class,
+        new Description("Number of deleted projects which are not yet purged from the index")
+            .setGauge()
+            .setUnit("projects"),
+        () -> getTombstones().size());
+  }
+
+  @Override
+  public synchronized void start() {
+    try {
+      tombstones.load();
+    } catch (IOException | ConfigInvalidException e) {
+      log.atSevere().withCause(e).log("Failed to load index tombstones %s", tombstones.getFile());
+    }
+    executor = workQueue.createQueue(1, QUEUE_NAME);
+    for (Project.NameKey project : getTombstones()) {
+      log.atInfo().log("Resuming purge of project %s from the change index", project);
+      schedule(project);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Tombstones a deleted project and schedules the purge of its changes from the index. The
+   * changes are purged inline if the purger is not running.
+   */
+  public void tombstone(Project.NameKey project) {
+    synchronized (this) {
+      tombstones.setLong(SECTION, project.get(), KEY_CREATED, TimeMachine.now().toEpochMilli());
+      save();
+    }
+    schedule(project);
+  }
+
+  /** Whether the changes of a deleted project may still be in the index. */
+  public synchronized boolean isTombstoned(Project.NameKey project) {
+    return tombstones.getSubsections(SECTION).contains(project.get());
+  }
+
+  /**
+   * Stops the purge of a deleted project whose repository was restored. Once this method returns,
+   * the purge deletes no more changes of the project from the index, and the changes of the project
+   * must be reindexed by the caller.
+   */
+  public void cancel(Project.NameKey project) {
+    synchronized (purgeLock) {
+      if (isTombstoned(project)) {
+        log.atInfo().log("Project %s was restored, cancelling the purge of its changes", project);
+        remove(project);
+      }
+    }
+  }
+
+  synchronized ImmutableSet<Project.NameKey> getTombstones() {
+    return tombstones.getSubsections(SECTION).stream()
+        .map(Project::nameKey)
+        .collect(ImmutableSet.toImmutableSet());
+  }
+
+  @Override
+  public void onNewProjectCreated(NewProjectCreatedListener.Event event) {
+    Project.NameKey project = Project.nameKey(event.getProjectName());
+    if (isTombstoned(project)) {
+      log.atInfo().log("Project %s was recreated, purging the deleted project's changes", project);
+      indexer.deleteAllForProject(project);
+      remove(project);
+    }
+  }
+
+  private void schedule(Project.NameKey project) {
+    ScheduledExecutorService e = executor;
+    if (e != null) {
+      try {
+        e.submit(() -> purge(project));
+        return;
+      } catch (RejectedExecutionException ex) {
+        log.atFine().log("Index purger is stopped, purging %s inline", project);
+      }
+    }
+    purge(project);
+  }
+
+  /**
+   * Purges the changes of a project from the index page by page. Purged changes no longer match
+   * the query, so that every query returns the next page.
+   */
+  private void purge(Project.NameKey project) {
+    int batchSize = cfg.getIndexPurgeBatchSize();
+    Set<Change.Id> purged = new HashSet<>();
+    try (Timer0.Context ctx = metrics.indexPurgeLatency.start()) {
+      // Stop as soon as the project is restored or recreated, so that its changes are kept.
+      while (isTombstoned(project)) {
+        List<ChangeData> page = queryProvider.get().setLimit(batchSize).byProject(project);
+        int before = purged.size();
+        for (ChangeData cd : page) {
+          if (!purged.contains(cd.getId())) {
+            if (!delete(project, cd.getId())) {
+              log.atInfo().log(
+                  "Purge of project %s was cancelled after %d changes", project, purged.size());
+              return;
+            }
+            purged.add(cd.getId());
+          }
+        }
+        if (purged.size() == before) {
+          // Either no changes are left, or the index does not yet reflect the purged changes.
+          synchronized (purgeLock) {
+            if (isTombstoned(project)) {
+              indexer.deleteAllForProject(project);
+              remove(project);
+            }
+          }
+          break;
+        }
+        log.atFine().log("Purged %d changes of project %s from the index", purged.size(), project);
+      }
+    } catch (RuntimeException e) {
+      log.atSevere().withCause(e).log(
+          "Failed to purge project %s from the change index after %d changes",
+          project, purged.size());
+      return;
+    }
+    log.atInfo().log("Purged %d changes of project %s from the index", purged.size(), project);
+  }
+
+  /**
+   * Deletes a change of a tombstoned project from the index, unless the purge of the project was
+   * cancelled.
+   *
+   * @return false if the project is no longer tombstoned, and the change was not deleted.
+   */
+  private boolean delete(Project.NameKey project, Change.Id id) {
+    synchronized (purgeLock) {
+      if (!isTombstoned(project)) {
+        return false;
+      }
+      indexer.delete(id);
+    }
+    metrics.indexDocumentsPurged.increment();
+    return true;
+  }
+
+  private synchronized void remove(Project.NameKey project) {
+    tombstones.unsetSection(SECTION, project.get());
+    save();
+  }
+
+  private void save() {
+    try {
+      tombstones.save();
+    } catch (IOException e) {
+      log.atWarning().withCause(e).log("Failed to save index tombstones %s", tombstones.getFile());
+    }
+  }
+}
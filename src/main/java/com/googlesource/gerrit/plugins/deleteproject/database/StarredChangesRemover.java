@@ -0,0 +1,170 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Unstars the changes of a deleted project by deleting their {@code refs/starred-changes/*} refs
+ * from All-Users in a few batch ref updates, rather than with one ref update per change.
+ */
+@Singleton
+public class StarredChangesRemover {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  private final GitRepositoryManager repoManager;
+  private final AllUsersName allUsers;
+  private final AllUsersRefsDeleter refsDeleter;
+  private final DeletionMetrics metrics;
+
+  @Inject
+  StarredChangesRemover(
+      GitRepositoryManager repoManager,
+      AllUsersName allUsers,
+      AllUsersRefsDeleter refsDeleter,
+      DeletionMetrics metrics) {
+    this.repoManager = repoManager;
+    this.allUsers = allUsers;
+    this.refsDeleter = refsDeleter;
+    this.metrics = metrics;
+  }
+
+  /** Returns the numbers of the changes which are starred by at least one user. */
+  public ChangeNumberSet getStarredChanges() throws IOException {
+    try (Repository repo = repoManager.openRepository(allUsers)) {
+      return getStarredChanges(repo.getRefDatabase());
+    }
+  }
+
+  /**
+   * Deletes the starred-changes refs of changes. Only the changes which are starred are looked up,
+   * so that the cost is proportional to the number of starred changes.
+   *
+   * @param project the project of the changes, used in the reflog message.
+   * @param changeIds the changes to unstar.
+   * @param batchSize the number of refs at which the pending deletions are executed.
+   * @return the number of refs which were deleted.
+   * @throws IOException if All-Users cannot be read or updated.
+   */
+  public int unstar(Project.NameKey project, Iterable<Change.Id> changeIds, int batchSize)
+      throws IOException {
+    try (Session session = open(project, batchSize)) {
+      session.unstar(changeIds);
+      session.flush();
+      return session.getRemoved();
+    }
+  }
+
+  /**
+   * Opens a session which unstars the changes of a project as they are passed in, so that the
+   * changes do not have to be known upfront.
+   *
+   * @param project the project of the changes, used in the reflog message.
+   * @param batchSize the number of refs at which the pending deletions are executed. The refs of a
+   *     change are always deleted by the same batch ref update.
+   * @throws IOException if All-Users cannot be read.
+   */
+  public Session open(Project.NameKey project, int batchSize) throws IOException {
+    return open("changes of deleted project " + project.get(), batchSize);
+  }
+
+  /**
+   * Opens a session for changes whose project no longer exists and is not known, e.g. because the
+   * changes are no longer in the index.
+   *
+   * @param batchSize the number of refs at which the pending deletions are executed.
+   * @throws IOException if All-Users cannot be read.
+   */
+  public Session openForOrphanedChanges(int batchSize) throws IOException {
+    return open("orphaned changes", batchSize);
+  }
+
+  private Session open(String subject, int batchSize) throws IOException {
+    AllUsersRefsDeleter.Session refs =
+        refsDeleter.open("Unstar " + subject, batchSize, metrics.starsRemoved);
+    try {
+      return new Session(refs, subject);
+    } catch (IOException e) {
+      refs.close();
+      throw e;
+    }
+  }
+
+  /** Unstars changes. The pending ref deletions are executed by {@link #flush()}. */
+  public class Session implements AutoCloseable {
+    private final AllUsersRefsDeleter.Session refs;
+    private final String subject;
+    private final ChangeNumberSet starred;
+
+    private Session(AllUsersRefsDeleter.Session refs, String subject) throws IOException {
+      this.refs = refs;
+      this.subject = subject;
+      this.starred = getStarredChanges(refs.getRefDatabase());
+    }
+
+    public void unstar(Iterable<Change.Id> changeIds) throws IOException {
+      int unstarred = getUnstarred();
+      RefDatabase refDb = refs.getRefDatabase();
+      for (Change.Id id : changeIds) {
+        if (starred.contains(id)) {
+          refs.delete(id, refDb.getRefsByPrefix(RefNames.refsStarredChangesPrefix(id)));
+        }
+      }
+      metrics.changesUnstarred.incrementBy(getUnstarred() - unstarred);
+    }
+
+    /** Executes the pending ref deletions. */
+    public void flush() throws IOException {
+      int unstarred = getUnstarred();
+      refs.flush();
+      metrics.changesUnstarred.incrementBy(getUnstarred() - unstarred);
+    }
+
+    /**
+     * Returns the number of starred changes whose stars were all deleted so far. The changes whose
+     * deletions are still pending are not counted until they are flushed.
+     */
+    public int getUnstarred() {
+      return refs.getDeletedChanges();
+    }
+
+    /** Returns the number of refs which were deleted so far. */
+    public int getRemoved() {
+      return refs.getRemoved();
+    }
+
+    @Override
+    public void close() {
+      log.atFine().log("Removed %d starred-changes refs of %s", getRemoved(), subject);
+      refs.close();
+    }
+  }
+
+  private static ChangeNumberSet getStarredChanges(RefDatabase refDb) throws IOException {
+    return ChangeNumberSet.fromRefs(
+        refDb.getRefsByPrefix(RefNames.REFS_STARRED_CHANGES), RefNames.REFS_STARRED_CHANGES);
+  }
+}
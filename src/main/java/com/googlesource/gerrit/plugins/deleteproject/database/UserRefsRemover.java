@@ -0,0 +1,181 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Deletes the refs of All-Users which are keyed by the changes of a deleted project, such as the
+ * draft comments in {@code refs/draft-comments/*}, in a few batch ref updates.
+ *
+ * <p>The starred-changes refs are keyed by change too, but are removed by {@link
+ * StarredChangesRemover} when the changes are unstarred.
+ */
+@Singleton
+public class UserRefsRemover {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  /** The namespaces of refs keyed by change, and the prefix of the refs of a single change. */
+  private static final ImmutableMap<String, Function<Change.Id, String>> NAMESPACES =
+      ImmutableMap.of(RefNames.REFS_DRAFT_COMMENTS, RefNames::refsDraftCommentsPrefix);
+
+  private final GitRepositoryManager repoManager;
+  private final AllUsersName allUsers;
+  private final AllUsersRefsDeleter refsDeleter;
+  private final DeletionMetrics metrics;
+
+  @Inject
+  UserRefsRemover(
+      GitRepositoryManager repoManager,
+      AllUsersName allUsers,
+      AllUsersRefsDeleter refsDeleter,
+      DeletionMetrics metrics) {
+    this.repoManager = repoManager;
+    this.allUsers = allUsers;
+    this.refsDeleter = refsDeleter;
+    this.metrics = metrics;
+  }
+
+  /** Returns the numbers of the changes which have refs in one of the namespaces of this class. */
+  public ChangeNumberSet getChangesWithRefs() throws IOException {
+    try (Repository repo = repoManager.openRepository(allUsers)) {
+      return getChangesWithRefs(repo.getRefDatabase()).values().stream()
+          .reduce(ChangeNumberSet::union)
+          .orElseThrow();
+    }
+  }
+
+  /**
+   * Opens a session which deletes the refs of the changes of a project as they are passed in, so
+   * that the changes do not have to be known upfront.
+   *
+   * @param project the project of the changes, used in the reflog message.
+   * @param batchSize the number of refs at which the pending deletions are executed. The refs of a
+   *     change are always deleted by the same batch ref update.
+   * @throws IOException if All-Users cannot be read.
+   */
+  public Session open(Project.NameKey project, int batchSize) throws IOException {
+    return open("changes of deleted project " + project.get(), batchSize);
+  }
+
+  /**
+   * Opens a session for changes whose project no longer exists and is not known, e.g. because the
+   * changes are no longer in the index.
+   *
+   * @param batchSize the number of refs at which the pending deletions are executed.
+   * @throws IOException if All-Users cannot be read.
+   */
+  public Session openForOrphanedChanges(int batchSize) throws IOException {
+    return open("orphaned changes", batchSize);
+  }
+
+  private Session open(String subject, int batchSize) throws IOException {
+    AllUsersRefsDeleter.Session refs =
+        refsDeleter.open("Purge " + subject, batchSize, metrics.userRefsPurged);
+    try {
+      return new Session(refs, subject);
+    } catch (IOException e) {
+      refs.close();
+      throw e;
+    }
+  }
+
+  /** Deletes the refs of changes. The pending ref deletions are executed by {@link #flush()}. */
+  public class Session implements AutoCloseable {
+    private final AllUsersRefsDeleter.Session refs;
+    private final String subject;
+    private final Map<String, ChangeNumberSet> changesWithRefs;
+
+    private Session(AllUsersRefsDeleter.Session refs, String subject) throws IOException {
+      this.refs = refs;
+      this.subject = subject;
+      this.changesWithRefs = getChangesWithRefs(refs.getRefDatabase());
+    }
+
+    public void purge(Iterable<Change.Id> changeIds) throws IOException {
+      for (Change.Id id : changeIds) {
+        List<Ref> changeRefs = getRefs(id);
+        if (!changeRefs.isEmpty()) {
+          refs.delete(id, changeRefs);
+        }
+      }
+    }
+
+    /**
+     * Returns the number of refs of changes which {@link #purge} would delete, without deleting
+     * them.
+     */
+    public int count(Iterable<Change.Id> changeIds) throws IOException {
+      int count = 0;
+      for (Change.Id id : changeIds) {
+        count += getRefs(id).size();
+      }
+      return count;
+    }
+
+    private List<Ref> getRefs(Change.Id id) throws IOException {
+      RefDatabase refDb = refs.getRefDatabase();
+      List<Ref> changeRefs = new ArrayList<>();
+      for (Map.Entry<String, Function<Change.Id, String>> namespace : NAMESPACES.entrySet()) {
+        if (changesWithRefs.get(namespace.getKey()).contains(id)) {
+          changeRefs.addAll(refDb.getRefsByPrefix(namespace.getValue().apply(id)));
+        }
+      }
+      return changeRefs;
+    }
+
+    /** Executes the pending ref deletions. */
+    public void flush() throws IOException {
+      refs.flush();
+    }
+
+    /** Returns the number of refs which were deleted so far. */
+    public int getRemoved() {
+      return refs.getRemoved();
+    }
+
+    @Override
+    public void close() {
+      log.atFine().log("Removed %d All-Users refs of %s", getRemoved(), subject);
+      refs.close();
+    }
+  }
+
+  private static ImmutableMap<String, ChangeNumberSet> getChangesWithRefs(RefDatabase refDb)
+      throws IOException {
+    ImmutableMap.Builder<String, ChangeNumberSet> changes = ImmutableMap.builder();
+    for (String namespace : NAMESPACES.keySet()) {
+      changes.put(namespace, ChangeNumberSet.fromRefs(refDb.getRefsByPrefix(namespace), namespace));
+    }
+    return changes.build();
+  }
+}
@@ -14,13 +14,11 @@
 
 package com.googlesource.gerrit.plugins.deleteproject.fs;
 
-import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.googlesource.gerrit.plugins.deleteproject.Configuration.DEFAULT_INITIAL_DELAY_MILLIS;
 import static com.googlesource.gerrit.plugins.deleteproject.Configuration.DEFAULT_PERIOD_DAYS;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.io.MoreFiles;
 import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.server.config.ScheduleConfig;
 import com.google.gerrit.server.git.WorkQueue;
@@ -35,11 +33,18 @@ public abstract class AbstractScheduledTask implements LifecycleListener, Runnab
 
   private final WorkQueue queue;
   private final Optional<ScheduleConfig.Schedule> schedule;
+  private final DeletionPool deletionPool;
   private ScheduledFuture<?> scheduledTask;
 
   protected AbstractScheduledTask(WorkQueue queue, Optional<ScheduleConfig.Schedule> schedule) {
+    this(queue, schedule, DeletionPool.SEQUENTIAL);
+  }
+
+  protected AbstractScheduledTask(
+      WorkQueue queue, Optional<ScheduleConfig.Schedule> schedule, DeletionPool deletionPool) {
     this.queue = queue;
     this.schedule = schedule;
+    this.deletionPool = deletionPool;
   }
 
   @Override
@@ -68,11 +73,14 @@ public abstract class AbstractScheduledTask implements LifecycleListener, Runnab
   @Override
   public abstract void run();
 
-  protected void recursivelyDelete(Path path) {
+  /** Deletes a folder and all its content, and returns whether it was deleted. */
+  protected boolean recursivelyDelete(Path path) {
     try {
-      MoreFiles.deleteRecursively(path, ALLOW_INSECURE);
+      deletionPool.delete(path);
+      return true;
     } catch (IOException e) {
       logger.atWarning().withCause(e).log("Failed to delete %s", path);
+      return false;
     }
   }
 
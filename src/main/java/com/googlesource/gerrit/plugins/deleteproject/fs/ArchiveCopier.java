@@ -0,0 +1,213 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies repositories into an archive folder on another filesystem. The files are copied with
+ * {@link FileChannel#transferTo}, which lets the kernel copy the data without going through the
+ * heap, and in parallel if more than one copy thread is configured. Every file is synced and
+ * verified against its source, by size and CRC32C, before the copy completes, so that the source
+ * can safely be deleted afterwards.
+ */
+@Singleton
+public class ArchiveCopier implements LifecycleListener {
+  /** Copies the files sequentially, in the calling thread. */
+  static final ArchiveCopier SEQUENTIAL = new ArchiveCopier(null, 1);
+
+  private final WorkQueue workQueue;
+  private final int threads;
+  private ExecutorService executor = MoreExecutors.newDirectExecutorService();
+
+  @Inject
+  ArchiveCopier(WorkQueue workQueue, Configuration cfg) {
+    this(workQueue, cfg.getArchiveCopyThreads());
+  }
+
+  @VisibleForTesting
+  ArchiveCopier(WorkQueue workQueue, int threads) {
+    this.workQueue = workQueue;
+    this.threads = threads;
+  }
+
+  @Override
+  public void start() {
+    if (threads > 1) {
+      executor = workQueue.createQueue(threads, "DeleteProject-ArchiveCopy");
+    }
+  }
+
+  @Override
+  public void stop() {
+    executor.shutdown();
+  }
+
+  /**
+   * Copies a folder and all its content. Symbolic links are copied as links.
+   *
+   * <p>If the copy fails, the copies of files which did not start yet are skipped, and the running
+   * ones are awaited before this method returns, so that the caller can remove the incomplete
+   * target without racing with them.
+   *
+   * @throws IOException if any file could not be copied, or does not match its source, or if the
+   *     copy threads are stopped.
+   */
+  void copy(Path source, Path target) throws IOException {
+    List<Future<?>> copies = new ArrayList<>();
+    AtomicBoolean aborted = new AtomicBoolean();
+    boolean walked = false;
+    try {
+      Files.walkFileTree(
+          source,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              Files.createDirectories(target.resolve(source.relativize(dir)));
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              Path copy = target.resolve(source.relativize(file));
+              if (attrs.isRegularFile()) {
+                copies.add(submit(file, copy, aborted));
+              } else {
+                Files.copy(file, copy, LinkOption.NOFOLLOW_LINKS);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+      walked = true;
+    } finally {
+      if (!walked) {
+        aborted.set(true);
+        awaitAll(copies);
+      }
+    }
+
+    IOException failure = null;
+    for (Future<?> f : copies) {
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        aborted.set(true);
+        awaitAll(copies);
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while copying " + source);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = new IOException("Failed to copy " + source + " to " + target);
+          aborted.set(true);
+        }
+        failure.addSuppressed(e.getCause());
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private Future<?> submit(Path source, Path target, AtomicBoolean aborted) throws IOException {
+    try {
+      return executor.submit(
+          () -> {
+            if (!aborted.get()) {
+              copyFile(source, target);
+            }
+            return null;
+          });
+    } catch (RejectedExecutionException e) {
+      throw new IOException("Cannot copy " + source + ", the copy threads are stopped", e);
+    }
+  }
+
+  /** Waits for copies to complete, ignoring their failures, which the caller already reports. */
+  private static void awaitAll(List<Future<?>> copies) {
+    for (Future<?> f : copies) {
+      try {
+        Uninterruptibles.getUninterruptibly(f);
+      } catch (ExecutionException | CancellationException e) {
+        // Reported by the caller.
+      }
+    }
+  }
+
+  private static void copyFile(Path source, Path target) throws IOException {
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel out =
+            FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      long size = in.size();
+      long position = 0;
+      while (position < size) {
+        long transferred = in.transferTo(position, size - position, out);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+      }
+      out.force(true);
+    }
+    verify(source, target);
+    Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+  }
+
+  private static void verify(Path source, Path target) throws IOException {
+    long sourceSize = Files.size(source);
+    long targetSize = Files.size(target);
+    if (sourceSize != targetSize) {
+      throw new IOException(
+          String.format(
+              "Copy %s has %d bytes, but %s has %d bytes", target, targetSize, source, sourceSize));
+    }
+    if (!checksum(source).equals(checksum(target))) {
+      throw new IOException(String.format("Checksum of copy %s does not match %s", target, source));
+    }
+  }
+
+  private static HashCode checksum(Path file) throws IOException {
+    return MoreFiles.asByteSource(file).hash(Hashing.crc32c());
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration.ArchiveFormat;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Deduplicates the pack files of archived repositories into the {@link ArchivePackStore} in the
+ * background, so that archiving a repository in the {@link ArchiveFormat#DEDUPLICATED} format does
+ * not cost the hashing of its pack files. An archive which was not deduplicated, e.g. because the
+ * server was stopped, is kept as it is.
+ *
+ * <p>Whether the archive folder supports hard links and their count is probed before its first
+ * archive is deduplicated. If it does not, a warning is logged and the archives are kept as they
+ * are, as in the {@link ArchiveFormat#DIRECTORY} format.
+ */
+@Singleton
+public class ArchiveDeduplicator implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-ArchiveDeduplicator";
+
+  private final WorkQueue workQueue;
+  private final DeletionMetrics metrics;
+  private final Map<Path, Boolean> supportsHardLinks = new ConcurrentHashMap<>();
+  private volatile ScheduledExecutorService executor;
+
+  @Inject
+  ArchiveDeduplicator(WorkQueue workQueue, DeletionMetrics metrics) {
+    this.workQueue = workQueue;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void start() {
+    executor = workQueue.createQueue(1, QUEUE_NAME);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Schedules the deduplication of an archived repository. The repository is deduplicated inline if
+   * the deduplicator is not running.
+   *
+   * @param archiveFolder the archive folder, whose store the pack files are moved into.
+   * @param archive the archived repository, in the archive folder.
+   */
+  void deduplicate(Path archiveFolder, Path archive) {
+    ScheduledExecutorService e = executor;
+    if (e != null) {
+      try {
+        e.submit(() -> run(archiveFolder, archive));
+        return;
+      } catch (RejectedExecutionException ex) {
+        log.atFine().log("Archive deduplicator is stopped, deduplicating %s inline", archive);
+      }
+    }
+    run(archiveFolder, archive);
+  }
+
+  private void run(Path archiveFolder, Path archive) {
+    if (!supportsHardLinks.computeIfAbsent(archiveFolder, ArchiveDeduplicator::probe)) {
+      return;
+    }
+    try {
+      metrics.archiveBytesDeduplicated.incrementBy(
+          new ArchivePackStore(archiveFolder).deduplicate(archive));
+    } catch (IOException e) {
+      log.atWarning().withCause(e).log("Failed to deduplicate the pack files of %s", archive);
+    }
+  }
+
+  private static boolean probe(Path archiveFolder) {
+    if (supportsHardLinks(archiveFolder)) {
+      return true;
+    }
+    log.atWarning().log(
+        "The archive folder %s does not support hard links and their count; archiving in format"
+            + " %s instead of %s",
+        archiveFolder, ArchiveFormat.DIRECTORY, ArchiveFormat.DEDUPLICATED);
+    return false;
+  }
+
+  /**
+   * Whether hard links can be created in a folder, and the number of links to a file can be read
+   * from its {@code unix:nlink} attribute, as the {@link ArchivePackStore} needs.
+   */
+  static boolean supportsHardLinks(Path folder) {
+    if (!folder.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+      return false;
+    }
+    Path file = folder.resolve(".%link-probe%");
+    Path link = folder.resolve(".%link-probe%.link");
+    try {
+      Files.deleteIfExists(link);
+      Files.deleteIfExists(file);
+      Files.createFile(file);
+      Files.createLink(link, file);
+      return (Integer) Files.getAttribute(file, "unix:nlink") == 2;
+    } catch (IOException | UnsupportedOperationException | SecurityException e) {
+      log.atFine().withCause(e).log("Failed to create a hard link in %s", folder);
+      return false;
+    } finally {
+      try {
+        Files.deleteIfExists(link);
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        log.atWarning().withCause(e).log("Failed to delete %s", file);
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only manifest of the repositories in an archive folder, with one line per archived
+ * repository: the time it was archived, its size, the name of its project and its path in the
+ * archive folder. The size is only recorded for bundles, whose size is known without walking the
+ * archived repository, and is -1 otherwise. The repositories which expire are found from the
+ * manifest, sorted by the time they were archived, without listing the archive folder and reading
+ * the modification time of every archived repository.
+ *
+ * <p>Repositories archived before the manifest existed are added to it by a single scan of the
+ * archive folder, which is recorded in the manifest so that it is never repeated.
+ */
+class ArchiveManifest {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  static final String FILE_NAME = ".%manifest%";
+
+  /** Serializes the updates of the manifests, which are shared by deletions and the remover. */
+  private static final Object LOCK = new Object();
+
+  private static final String SCANNED = "# scanned";
+  private static final Pattern ARCHIVE_NAME =
+      Pattern.compile(
+          "(.+)\\.\\d{14}\\.%archived%(\\.git|\\" + RepositoryBundle.EXTENSION + ")");
+
+  /** A repository in the archive folder. */
+  static class Entry {
+    final Instant archivedAt;
+    final long size;
+    final String project;
+    final Path path;
+
+    Entry(Instant archivedAt, long size, String project, Path path) {
+      this.archivedAt = archivedAt;
+      this.size = size;
+      this.project = project;
+      this.path = path;
+    }
+
+    private String toLine() {
+      return String.format("%d\t%d\t%s\t%s\n", archivedAt.toEpochMilli(), size, project, path);
+    }
+
+    private static Entry parse(String line) {
+      String[] fields = line.split("\t", 4);
+      return new Entry(
+          Instant.ofEpochMilli(Long.parseLong(fields[0])),
+          Long.parseLong(fields[1]),
+          fields[2],
+          Path.of(fields[3]));
+    }
+  }
+
+  private final Path archiveFolder;
+  private final Path file;
+  private final TreeSet<Entry> entries =
+      new TreeSet<>(
+          Comparator.<Entry, Instant>comparing(e -> e.archivedAt)
+              .thenComparing(e -> e.path.toString()));
+  private long offset;
+  private boolean scanned;
+
+  ArchiveManifest(Path archiveFolder) {
+    this.archiveFolder = archiveFolder;
+    this.file = archiveFolder.resolve(FILE_NAME);
+  }
+
+  /**
+   * Appends an archived repository to the manifest of its archive folder.
+   *
+   * @param archive the archived repository, in the archive folder.
+   * @param size the size of the archived repository, or -1 if it is unknown.
+   */
+  static void append(
+      Path archiveFolder, String project, Path archive, Instant archivedAt, long size)
+      throws IOException {
+    Path folder = archiveFolder.toAbsolutePath().normalize();
+    Path path = folder.relativize(archive.toAbsolutePath().normalize());
+    Entry entry = new Entry(archivedAt, size, project, path);
+    synchronized (LOCK) {
+      Files.write(
+          folder.resolve(FILE_NAME),
+          entry.toLine().getBytes(UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    }
+  }
+
+  /** Returns the absolute path of an archived repository. */
+  Path resolve(Entry entry) {
+    return archiveFolder.resolve(entry.path);
+  }
+
+  /**
+   * Returns the repositories which were archived before a given time, oldest first. Only the lines
+   * appended to the manifest since the last call are read.
+   */
+  ImmutableList<Entry> archivedBefore(Instant time) throws IOException {
+    synchronized (LOCK) {
+      refresh();
+      if (!scanned) {
+        scan();
+      }
+      return entries.stream()
+          .takeWhile(e -> e.archivedAt.isBefore(time))
+          .collect(ImmutableList.toImmutableList());
+    }
+  }
+
+  /** Removes repositories from the manifest, which is rewritten without them. */
+  void remove(Collection<Entry> removed) throws IOException {
+    if (removed.isEmpty()) {
+      return;
+    }
+    synchronized (LOCK) {
+      refresh();
+      entries.removeAll(removed);
+      Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+      try (Writer w = Files.newBufferedWriter(tmp, UTF_8)) {
+        if (scanned) {
+          w.write(SCANNED + "\n");
+        }
+        for (Entry e : entries) {
+          w.write(e.toLine());
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      offset = Files.size(file);
+    }
+  }
+
+  /** Reads the lines appended to the manifest since it was last read. */
+  private void refresh() throws IOException {
+    long size = Files.exists(file) ? Files.size(file) : 0;
+    if (size < offset) {
+      // The manifest was rewritten by another instance.
+      entries.clear();
+      scanned = false;
+      offset = 0;
+    }
+    if (size == offset) {
+      return;
+    }
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      channel.position(offset);
+      BufferedReader reader =
+          new BufferedReader(Channels.newReader(channel, UTF_8.newDecoder(), -1));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.equals(SCANNED)) {
+          scanned = true;
+        } else if (!line.isEmpty()) {
+          try {
+            entries.add(Entry.parse(line));
+          } catch (RuntimeException e) {
+            log.atWarning().log("Ignoring invalid line of archive manifest %s: %s", file, line);
+          }
+        }
+      }
+    }
+    offset = size;
+  }
+
+  /**
+   * Adds the repositories which are in the archive folder but not in the manifest, i.e. which were
+   * archived before the manifest existed. Their archive time is their modification time.
+   */
+  private void scan() throws IOException {
+    Set<Path> known = new HashSet<>();
+    entries.forEach(e -> known.add(e.path));
+    StringBuilder lines = new StringBuilder();
+    Files.walkFileTree(
+        archiveFolder,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (dir.getFileName().toString().equals(ArchivePackStore.FOLDER_NAME)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            if (add(dir, attrs)) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+            add(f, attrs);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path f, IOException e) {
+            return FileVisitResult.CONTINUE;
+          }
+
+          private boolean add(Path archive, BasicFileAttributes attrs) {
+            Matcher m = ARCHIVE_NAME.matcher(archive.getFileName().toString());
+            if (!m.matches()) {
+              return false;
+            }
+            Path path = archiveFolder.relativize(archive);
+            if (!known.contains(path)) {
+              Path parent = path.getParent();
+              String project = parent != null ? parent.resolve(m.group(1)).toString() : m.group(1);
+              lines.append(
+                  new Entry(attrs.lastModifiedTime().toInstant(), -1, project, path).toLine());
+            }
+            return true;
+          }
+        });
+    lines.append(SCANNED + "\n");
+    Files.write(
+        file,
+        lines.toString().getBytes(UTF_8),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    refresh();
+  }
+}
@@ -0,0 +1,168 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Content addressed store of the pack files of archived repositories, kept in a folder of the
+ * archive. Every pack, index, reverse index and bitmap file of an archived repository is replaced
+ * by a hard link to the file of the store with the same SHA-256, so that the packs shared by forks
+ * are stored once.
+ *
+ * <p>The references to a file of the store are counted by the filesystem as the number of links to
+ * the file. A file which is no longer linked from any archived repository is deleted by {@link
+ * #collect()}.
+ *
+ * <p>The store needs a filesystem which supports hard links and the {@code unix:nlink} attribute,
+ * which {@link ArchiveDeduplicator} checks before the first archive is deduplicated.
+ *
+ * <p>{@link #deduplicate(Path)} and {@link #collect()} may run concurrently, on different threads
+ * or servers sharing the archive folder, and are not serialized: a file of the store whose number
+ * of links was read as 1 by {@link #collect()} can be linked by {@link #deduplicate(Path)} before
+ * it is deleted. This race is benign, since deleting a file of the store only removes one of its
+ * links: the archived repository which was just linked keeps the content of the file, which is
+ * only no longer shared with archives deduplicated later on. A store folder which is collected
+ * while a file is linked into it is created again by {@link #deduplicate(Path)}.
+ */
+class ArchivePackStore {
+  static final String FOLDER_NAME = ".%packs%";
+
+  private final Path store;
+
+  ArchivePackStore(Path archiveFolder) {
+    this.store = archiveFolder.resolve(FOLDER_NAME);
+  }
+
+  /**
+   * Replaces the pack files of an archived repository by links to the store.
+   *
+   * @return the number of bytes which were already in the store.
+   */
+  long deduplicate(Path archivedRepo) throws IOException {
+    Path packDir = archivedRepo.resolve("objects").resolve("pack");
+    if (!Files.isDirectory(packDir)) {
+      return 0;
+    }
+    long deduplicated = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(packDir)) {
+      for (Path file : files) {
+        if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+          deduplicated += link(file);
+        }
+      }
+    }
+    return deduplicated;
+  }
+
+  private long link(Path file) throws IOException {
+    String hash = MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+    Path blob = store.resolve(hash.substring(0, 2)).resolve(hash);
+    while (true) {
+      Files.createDirectories(blob.getParent());
+      try {
+        Files.createLink(blob, file);
+        return 0;
+      } catch (FileAlreadyExistsException e) {
+        // Another archived repository has the same file already.
+      } catch (NoSuchFileException e) {
+        // The folder of the file was collected in the meantime.
+        continue;
+      }
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try {
+        Files.createLink(tmp, blob);
+      } catch (NoSuchFileException e) {
+        // The file was collected after its last reference expired in the meantime.
+        continue;
+      }
+      long size = Files.size(file);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return size;
+    }
+  }
+
+  /**
+   * Replaces the pack files of an archived repository which are linked to the store by copies of
+   * their own, so that the repository no longer shares them with the store, e.g. before it is
+   * restored. Repositories on a filesystem which does not provide the number of links to a file
+   * are left untouched, since their files cannot be linked to the store.
+   */
+  static void detach(Path archivedRepo) throws IOException {
+    Path packDir = archivedRepo.resolve("objects").resolve("pack");
+    if (!Files.isDirectory(packDir)
+        || !Files.getFileStore(packDir).supportsFileAttributeView("unix")) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(packDir)) {
+      for (Path file : files) {
+        if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+            && (Integer) Files.getAttribute(file, "unix:nlink") > 1) {
+          Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+          Files.copy(
+              file, tmp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+          Files.move(
+              tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the files of the store which are no longer linked from any archived repository.
+   *
+   * @return the storage which was freed.
+   * @throws UnsupportedOperationException if the filesystem of the store does not provide the
+   *     number of links to a file.
+   */
+  FileTreeDelete.Freed collect() throws IOException {
+    FileTreeDelete.Freed freed = new FileTreeDelete.Freed();
+    if (!Files.isDirectory(store)) {
+      return freed;
+    }
+    try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(store)) {
+      for (Path prefix : prefixes) {
+        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(prefix)) {
+          for (Path blob : blobs) {
+            // The file may be linked by a concurrent deduplication right after this check, which
+            // is benign, see the class documentation.
+            if ((Integer) Files.getAttribute(blob, "unix:nlink") <= 1) {
+              long size = Files.size(blob);
+              Files.delete(blob);
+              freed.files++;
+              freed.bytes += size;
+            }
+          }
+        }
+        try {
+          Files.delete(prefix);
+        } catch (DirectoryNotEmptyException e) {
+          // Some files of the folder are still linked.
+        }
+      }
+    }
+    return freed;
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.googlesource.gerrit.plugins.deleteproject.fs;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.extensions.annotations.PluginName;
 import com.google.gerrit.server.git.WorkQueue;
@@ -21,9 +22,9 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.deleteproject.Configuration;
 import com.googlesource.gerrit.plugins.deleteproject.TimeMachine;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,13 +35,18 @@ public class ArchiveRepositoryRemover extends AbstractScheduledTask {
 
   private final Configuration config;
   private final String pluginName;
+  private final ArchiveManifest manifest;
 
   @Inject
   ArchiveRepositoryRemover(
-      WorkQueue queue, Configuration pluginCfg, @PluginName String pluginName) {
-    super(queue, pluginCfg.getSchedule());
+      WorkQueue queue,
+      Configuration pluginCfg,
+      @PluginName String pluginName,
+      DeletionPool deletionPool) {
+    super(queue, pluginCfg.getSchedule(), deletionPool);
     this.config = pluginCfg;
     this.pluginName = pluginName;
+    this.manifest = new ArchiveManifest(pluginCfg.getArchiveFolder());
   }
 
   @Override
@@ -58,28 +64,51 @@ public class ArchiveRepositoryRemover extends AbstractScheduledTask {
   }
 
   private void cleanUpOverdueRepositories() {
-    for (Path path : listOverdueFiles(config.getArchiveDuration())) {
-      recursivelyDelete(path);
+    ImmutableList<ArchiveManifest.Entry> overdue;
+    try {
+      overdue =
+          manifest.archivedBefore(TimeMachine.now().minusMillis(config.getArchiveDuration()));
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to read the manifest of the archive");
+      return;
     }
-  }
 
-  private List<Path> listOverdueFiles(long duration) {
-    List<Path> files = new ArrayList<>();
-    File targetDir = config.getArchiveFolder().toFile();
-    long nowTimestamp = TimeMachine.now().toEpochMilli();
+    List<ArchiveManifest.Entry> removed = new ArrayList<>();
+    for (ArchiveManifest.Entry entry : overdue) {
+      Path path = manifest.resolve(entry);
+      // The repository may have been restored in the meantime.
+      if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS) || recursivelyDelete(path)) {
+        removed.add(entry);
+        deleteEmptyParents(path.getParent());
+      }
+    }
+    try {
+      manifest.remove(removed);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to update the manifest of the archive");
+    }
 
-    for (File repo : targetDir.listFiles()) {
-      try {
-        long lastModifiedTime = Files.getLastModifiedTime(repo.toPath()).toMillis();
-        long expiryTimestamp = lastModifiedTime + duration;
-        if (nowTimestamp > expiryTimestamp) {
-          files.add(repo.toPath());
-        }
-      } catch (IOException e) {
-        logger.atWarning().withCause(e).log(
-            "Error trying to get last modified time for file: %s", repo.toPath());
+    try {
+      FileTreeDelete.Freed freed = new ArchivePackStore(config.getArchiveFolder()).collect();
+      if (freed.files > 0) {
+        logger.atInfo().log(
+            "Deleted %d archived pack files which are no longer referenced, freeing %d bytes",
+            freed.files, freed.bytes);
       }
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.atWarning().withCause(e).log("Failed to clean up the archived pack files");
+    }
+  }
+
+  private void deleteEmptyParents(Path parent) {
+    if (!Files.isDirectory(parent)) {
+      return;
+    }
+    try {
+      RepositoryDelete.recursivelyDeleteEmptyParents(
+          parent.toFile(), config.getArchiveFolder().toFile());
+    } catch (IOException e) {
+      logger.atFine().withCause(e).log("Failed to delete empty folder %s", parent);
     }
-    return files;
   }
 }
@@ -89,8 +89,9 @@ public class DeleteTrashFolders extends AbstractScheduledTask {
       RepositoryConfig repositoryCfg,
       Configuration pluginCfg,
       WorkQueue workQueue,
-      @PluginName String pluginName) {
-    super(workQueue, pluginCfg.getSchedule());
+      @PluginName String pluginName,
+      DeletionPool deletionPool) {
+    super(workQueue, pluginCfg.getSchedule(), deletionPool);
     this.repoFolders = Sets.newHashSet();
     repoFolders.add(site.resolve(cfg.getString("gerrit", null, "basePath")));
     repoFolders.addAll(repositoryCfg.getAllBasePaths());
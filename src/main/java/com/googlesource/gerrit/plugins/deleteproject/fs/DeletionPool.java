@@ -0,0 +1,75 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Deletes folders recursively, in parallel on a {@link ForkJoinPool} if the configured deletion
+ * parallelism is greater than one. Shared by the inline deletion of repositories and the reapers
+ * of the trash and archive folders.
+ */
+@Singleton
+public class DeletionPool implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  /** Deletes folders sequentially, in the calling thread. */
+  static final DeletionPool SEQUENTIAL = new DeletionPool(1);
+
+  private final ForkJoinPool pool;
+
+  @Inject
+  DeletionPool(Configuration cfg) {
+    this(cfg.getDeletionParallelism());
+  }
+
+  @VisibleForTesting
+  DeletionPool(int parallelism) {
+    this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+  }
+
+  @Override
+  public void start() {}
+
+  @Override
+  public void stop() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  /** Deletes a folder and all its content, and returns the storage which was freed. */
+  FileTreeDelete.Freed delete(Path root) throws IOException {
+    if (pool != null && Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+      try {
+        return FileTreeDelete.delete(root, pool);
+      } catch (RejectedExecutionException e) {
+        log.atFine().log("Deletion pool is stopped, deleting %s sequentially", root);
+      }
+    }
+    return FileTreeDelete.delete(root);
+  }
+}
@@ -17,25 +17,30 @@ package com.googlesource.gerrit.plugins.deleteproject.fs;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.server.git.GitRepositoryManager;
 import com.google.inject.Inject;
 import com.googlesource.gerrit.plugins.deleteproject.Configuration;
 import java.io.IOException;
 import java.util.Optional;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Repository;
 
 public class FilesystemDeleteHandler {
   private final RepositoryDelete repositoryDelete;
   private final DynamicSet<ProjectDeletedListener> deletedListeners;
   private final Configuration config;
+  private final GitRepositoryManager repoManager;
 
   @Inject
   public FilesystemDeleteHandler(
       RepositoryDelete repositoryDelete,
       DynamicSet<ProjectDeletedListener> deletedListeners,
-      Configuration config) {
+      Configuration config,
+      GitRepositoryManager repoManager) {
     this.repositoryDelete = repositoryDelete;
     this.deletedListeners = deletedListeners;
     this.config = config;
+    this.repoManager = repoManager;
   }
 
   public void delete(Project.NameKey project, boolean preserveGitRepository)
@@ -47,4 +52,12 @@ public class FilesystemDeleteHandler {
         Optional.ofNullable(config.getArchiveFolder()),
         deletedListeners);
   }
+
+  /** Returns the number of files and bytes which the repository of a project uses on disk. */
+  public RepositoryUsage getUsage(Project.NameKey project)
+      throws IOException, RepositoryNotFoundException {
+    try (Repository repo = repoManager.openRepository(project)) {
+      return RepositoryUsage.measure(repo.getDirectory().toPath());
+    }
+  }
 }
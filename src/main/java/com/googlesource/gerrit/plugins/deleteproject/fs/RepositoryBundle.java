@@ -0,0 +1,77 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.transport.BundleWriter;
+
+/**
+ * Archives a repository as a single git bundle, which contains all the refs of the repository and
+ * the objects reachable from them.
+ */
+class RepositoryBundle {
+  static final String EXTENSION = ".bundle";
+
+  private RepositoryBundle() {}
+
+  /**
+   * Writes the bundle of a repository. The bundle is written to a temporary file first, which is
+   * renamed once complete, so that a failed write never leaves a truncated bundle in the archive.
+   *
+   * @param gitDir the repository to bundle.
+   * @param bundle the file to write the bundle to.
+   * @param compressionLevel the compression level of the objects which are not reused as they are
+   *     from the packs of the repository, from 0 to 9, or -1 for the default level.
+   * @return the size of the bundle.
+   */
+  static long write(Path gitDir, Path bundle, int compressionLevel) throws IOException {
+    Path tmp = bundle.resolveSibling(bundle.getFileName() + ".tmp");
+    try (Repository repo =
+        new FileRepositoryBuilder().setGitDir(gitDir.toFile()).setMustExist(true).build()) {
+      BundleWriter writer = new BundleWriter(repo);
+      PackConfig packConfig = new PackConfig(repo);
+      packConfig.setCompressionLevel(compressionLevel);
+      writer.setPackConfig(packConfig);
+      for (Ref ref : repo.getRefDatabase().getRefs()) {
+        if (!ref.isSymbolic() && ref.getObjectId() != null) {
+          writer.include(ref);
+        }
+      }
+      Ref head = repo.exactRef(Constants.HEAD);
+      if (head != null && head.getObjectId() != null) {
+        writer.include(Constants.HEAD, head.getObjectId());
+      }
+      Files.createDirectories(bundle.getParent());
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+        writer.writeBundle(NullProgressMonitor.INSTANCE, out);
+      }
+      Files.move(tmp, bundle, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return Files.size(bundle);
+  }
+}
@@ -14,20 +14,23 @@
 
 package com.googlesource.gerrit.plugins.deleteproject.fs;
 
-import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
-
 import com.google.common.flogger.FluentLogger;
-import com.google.common.io.MoreFiles;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.common.UsedAt;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.api.changes.NotifyHandling;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.metrics.Timer0;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration.ArchiveFormat;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
 import com.googlesource.gerrit.plugins.deleteproject.TimeMachine;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -35,7 +38,6 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 import javax.inject.Inject;
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryCache;
@@ -49,11 +51,50 @@ public class RepositoryDelete {
 
   private final GitRepositoryManager repoManager;
   private final Configuration configuration;
+  @Nullable private final TrashReaper trashReaper;
+  private final DeletionMetrics metrics;
+  private final DeletionPool deletionPool;
+  private final ArchiveCopier archiveCopier;
+  private final ArchiveDeduplicator archiveDeduplicator;
 
-  @Inject
+  /**
+   * Creates an instance which deletes, archives and deduplicates repositories on the calling
+   * thread. Repository deletions are never deferred, since there is no {@link TrashReaper}, and no
+   * metrics are recorded.
+   */
+  @UsedAt(UsedAt.Project.PLUGIN_PULL_REPLICATION)
   public RepositoryDelete(GitRepositoryManager repoManager, Configuration configuration) {
+    this(repoManager, configuration, new DeletionMetrics(new DisabledMetricMaker()));
+  }
+
+  private RepositoryDelete(
+      GitRepositoryManager repoManager, Configuration configuration, DeletionMetrics metrics) {
+    this(
+        repoManager,
+        configuration,
+        null,
+        metrics,
+        DeletionPool.SEQUENTIAL,
+        ArchiveCopier.SEQUENTIAL,
+        new ArchiveDeduplicator(null, metrics));
+  }
+
+  @Inject
+  public RepositoryDelete(
+      GitRepositoryManager repoManager,
+      Configuration configuration,
+      @Nullable TrashReaper trashReaper,
+      DeletionMetrics metrics,
+      DeletionPool deletionPool,
+      ArchiveCopier archiveCopier,
+      ArchiveDeduplicator archiveDeduplicator) {
     this.repoManager = repoManager;
     this.configuration = configuration;
+    this.trashReaper = trashReaper;
+    this.metrics = metrics;
+    this.deletionPool = deletionPool;
+    this.archiveCopier = archiveCopier;
+    this.archiveDeduplicator = archiveDeduplicator;
   }
 
   private static final FluentLogger log = FluentLogger.forEnclosingClass();
@@ -70,11 +111,18 @@ public class RepositoryDelete {
    * the directory from being empty (and therefore deletion would fail). For more details see <a
    * href="https://bugs.chromium.org/p/gerrit/issues/detail?id=16730">...</a>
    *
+   * <p>If the deletion of repositories is deferred by the configuration, only the rename is done
+   * inline, and the renamed directory is deleted in the background by the {@link TrashReaper}.
+   *
    * @param project - the git repo name that is eligible for deletion
    * @param preserveGitRepository - if true, just remove the repo from the git cache, but keep the
    *     repo on disk.
-   * @param archiveDeletedRepos - if true, copy the repo to an archived path, and delete the
-   *     original directory.
+   * @param archiveDeletedRepos - if true, move the repo to an archived path. The repo is renamed
+   *     when the archived path is on the same filesystem, and otherwise copied before the original
+   *     directory is deleted. If the archive format is {@link ArchiveFormat#BUNDLE}, the repo is
+   *     written as a single git bundle instead, and the original directory is deleted. If it is
+   *     {@link ArchiveFormat#DEDUPLICATED}, the pack files of the archived repo are moved into a
+   *     content addressed store shared by all the archived repos, in the background.
    * @param archivedFolder - only used when `archiveDeletedRepos` is true, provides the archived
    *     directory.
    * @param deletedListeners - a set of `ProjectDeletedListener`s - when provided these listeners
@@ -97,8 +145,7 @@ public class RepositoryDelete {
       if (archiveDeletedRepos) {
         archiveGitRepository(projectName, repoPath, archivedFolder, deletedListeners);
       } else {
-        deleteGitRepository(
-            projectName, repoPath, deletedListeners, configuration.getTrashFolderName());
+        deleteGitRepository(projectName, repoPath, deletedListeners);
       }
     }
   }
@@ -121,7 +168,7 @@ public class RepositoryDelete {
     RepositoryCache.close(repository);
   }
 
-  private static void archiveGitRepository(
+  private void archiveGitRepository(
       String projectName,
       Path repoPath,
       Optional<Path> archivedFolder,
@@ -135,8 +182,30 @@ public class RepositoryDelete {
     Path renamedProjectDir = renameRepository(repoPath, basePath, projectName, "archived");
     try {
       Path archive = getArchivePath(archivedFolder.get(), renamedProjectDir, basePath);
-      FileUtils.copyDirectory(renamedProjectDir.toFile(), archive.toFile());
-      MoreFiles.deleteRecursively(renamedProjectDir, ALLOW_INSECURE);
+      boolean copied = true;
+      if (configuration.getArchiveFormat() == ArchiveFormat.BUNDLE) {
+        archive = bundleGitRepository(renamedProjectDir, archive);
+      } else if (!moveToArchive(renamedProjectDir, archive)) {
+        copyToArchive(renamedProjectDir, archive);
+      } else {
+        copied = false;
+      }
+      // Record the archive as soon as it is complete, so that it expires even if a later step
+      // fails.
+      ArchiveManifest.append(
+          archivedFolder.get(),
+          projectName,
+          archive,
+          TimeMachine.now(),
+          Files.isDirectory(archive) ? -1 : Files.size(archive));
+      if (copied) {
+        try (Timer0.Context ctx = metrics.recursiveDeleteLatency.start()) {
+          deletionPool.delete(renamedProjectDir);
+        }
+      }
+      if (configuration.getArchiveFormat() == ArchiveFormat.DEDUPLICATED) {
+        archiveDeduplicator.deduplicate(archivedFolder.get(), archive);
+      }
     } catch (IOException e) {
       log.atWarning().withCause(e).log("Error trying to archive %s", renamedProjectDir);
     } finally {
@@ -144,24 +213,78 @@ public class RepositoryDelete {
     }
   }
 
+  private Path bundleGitRepository(Path renamedProjectDir, Path archive) throws IOException {
+    String name = archive.getFileName().toString();
+    Path bundle =
+        archive.resolveSibling(
+            name.substring(0, name.length() - ".git".length()) + RepositoryBundle.EXTENSION);
+    try (Timer0.Context ctx = metrics.archiveCopyLatency.start()) {
+      RepositoryBundle.write(renamedProjectDir, bundle, configuration.getArchiveCompressionLevel());
+    }
+    return bundle;
+  }
+
+  /**
+   * Copies a repository into the archive folder. If the copy fails, the incomplete copy is
+   * deleted, and the repository is left in place.
+   */
+  private void copyToArchive(Path renamedProjectDir, Path archive) throws IOException {
+    try (Timer0.Context ctx = metrics.archiveCopyLatency.start()) {
+      archiveCopier.copy(renamedProjectDir, archive);
+    } catch (IOException e) {
+      try {
+        deletionPool.delete(archive);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Moves a repository into the archive folder with an atomic rename, which is only possible when
+   * the archive folder is on the same filesystem as the repository.
+   *
+   * @return false if the archive folder is on another filesystem, and the repository must be
+   *     copied instead.
+   */
+  private boolean moveToArchive(Path renamedProjectDir, Path archive) throws IOException {
+    Files.createDirectories(archive.getParent());
+    try (Timer0.Context ctx = metrics.renameLatency.start()) {
+      Files.move(renamedProjectDir, archive, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      log.atFine().log(
+          "Archive %s is on another filesystem, copying %s", archive, renamedProjectDir);
+      return false;
+    }
+    return true;
+  }
+
   private static Path getArchivePath(Path archivedFolder, Path renamedProjectDir, Path basePath) {
     Path configArchiveRepo = archivedFolder.toAbsolutePath();
     Path relativePath = basePath.relativize(renamedProjectDir);
     return configArchiveRepo.resolve(relativePath);
   }
 
-  private static void deleteGitRepository(
-      String projectName,
-      Path repoPath,
-      DynamicSet<ProjectDeletedListener> deletedListeners,
-      String trashFolderName)
+  private void deleteGitRepository(
+      String projectName, Path repoPath, DynamicSet<ProjectDeletedListener> deletedListeners)
       throws IOException {
     // Delete the repository from disk
+    String trashFolderName = configuration.getTrashFolderName();
     Path basePath = getBasePath(repoPath, projectName);
     Path trash =
         moveRepositoryForDeletion(repoPath, basePath, projectName, "deleted", trashFolderName);
     try {
-      MoreFiles.deleteRecursively(trash, ALLOW_INSECURE);
+      if (configuration.deferRepositoryDeletion() && trashReaper != null) {
+        trashReaper.reap(trash, basePath.resolve(trashFolderName));
+      } else {
+        FileTreeDelete.Freed freed;
+        try (Timer0.Context ctx = metrics.recursiveDeleteLatency.start()) {
+          freed = deletionPool.delete(trash);
+        }
+        metrics.filesFreed.incrementBy(freed.files);
+        metrics.bytesFreed.incrementBy(freed.bytes);
+      }
       recursivelyDeleteEmptyParents(repoPath.toFile().getParentFile(), basePath.toFile());
     } catch (IOException e) {
       // Only log if delete failed - repo already moved to trash.
@@ -177,16 +300,18 @@ public class RepositoryDelete {
         .resolve(repo.subpath(0, repo.getNameCount() - projectPath.getNameCount()));
   }
 
-  private static Path renameRepository(
+  private Path renameRepository(
       Path directory, Path basePath, String projectName, String option) throws IOException {
     Path newRepo =
         basePath.resolve(
             projectName + "." + FORMAT.format(TimeMachine.now()) + ".%" + option + "%.git");
     Files.createDirectories(newRepo.getParent());
-    return Files.move(directory, newRepo, StandardCopyOption.ATOMIC_MOVE);
+    try (Timer0.Context ctx = metrics.renameLatency.start()) {
+      return Files.move(directory, newRepo, StandardCopyOption.ATOMIC_MOVE);
+    }
   }
 
-  private static Path moveRepositoryForDeletion(
+  private Path moveRepositoryForDeletion(
       Path directory, Path basePath, String projectName, String option, String trashFolderName)
       throws IOException {
     return renameRepository(directory, basePath.resolve(trashFolderName), projectName, option);
@@ -197,7 +322,7 @@ public class RepositoryDelete {
    * or the parent file is populated. This is used when we have a tree structure such as a/b/c/d.git
    * and a/b/e.git - if we delete a/b/c/d.git, we no longer need a/b/c/.
    */
-  private static void recursivelyDeleteEmptyParents(File file, File until) throws IOException {
+  static void recursivelyDeleteEmptyParents(File file, File until) throws IOException {
     if (file.equals(until)) {
       return;
     }
@@ -208,11 +333,18 @@ public class RepositoryDelete {
     }
   }
 
-  private static void sendProjectDeletedEvent(
+  private void sendProjectDeletedEvent(
       String projectName, DynamicSet<ProjectDeletedListener> deletedListeners) {
     if (!deletedListeners.iterator().hasNext()) {
       return;
     }
+    try (Timer0.Context ctx = metrics.listenersLatency.start()) {
+      notifyListeners(projectName, deletedListeners);
+    }
+  }
+
+  private static void notifyListeners(
+      String projectName, DynamicSet<ProjectDeletedListener> deletedListeners) {
     ProjectDeletedListener.Event event =
         new ProjectDeletedListener.Event() {
           @Override
@@ -0,0 +1,249 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.LocalDiskRepositoryManager;
+import com.google.inject.Inject;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * Restores the git repository of a deleted project from the archive folder, or from the trash
+ * folder if it was not deleted yet. The newest archived or trashed repository of the project is
+ * moved back into the base path, with an atomic rename whenever the archive folder is on the same
+ * filesystem. Repositories archived as git bundles are fetched back from the bundle.
+ *
+ * <p>A trashed repository is only restored if it is a valid repository which is queued for
+ * deletion by the {@link TrashReaper}, and is claimed back from the reaper before it is moved.
+ * Other trashed repositories, e.g. ones which the reaper is deleting already or whose deletion
+ * failed halfway, are skipped.
+ *
+ * <p>The pack files which an archived repository shares with the {@link ArchivePackStore} are
+ * copied before the repository is moved back, so that the restored repository is independent of
+ * the store.
+ */
+public class RepositoryRestore {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+
+  private final GitRepositoryManager repoManager;
+  private final Configuration configuration;
+  private final DeletionPool deletionPool;
+  private final ArchiveCopier archiveCopier;
+  private final TrashReaper trashReaper;
+
+  @Inject
+  public RepositoryRestore(
+      GitRepositoryManager repoManager,
+      Configuration configuration,
+      DeletionPool deletionPool,
+      ArchiveCopier archiveCopier,
+      TrashReaper trashReaper) {
+    this.repoManager = repoManager;
+    this.configuration = configuration;
+    this.deletionPool = deletionPool;
+    this.archiveCopier = archiveCopier;
+    this.trashReaper = trashReaper;
+  }
+
+  /**
+   * Restores the newest archived or trashed repository of a project.
+   *
+   * @param project the name of the deleted project.
+   * @return the archived or trashed repository which was restored.
+   * @throws RepositoryNotFoundException if no archived or trashed repository of the project exists.
+   * @throws FileAlreadyExistsException if the project has a repository already.
+   * @throws IOException if the repository could not be restored.
+   */
+  public Path restore(Project.NameKey project) throws IOException {
+    Path basePath = getBasePath(project);
+    Path target = basePath.resolve(project.get() + Constants.DOT_GIT_EXT);
+    if (Files.exists(target)) {
+      throw new FileAlreadyExistsException(target.toString());
+    }
+    Path source;
+    do {
+      source =
+          findNewest(project, basePath)
+              .orElseThrow(() -> new RepositoryNotFoundException(project.get()));
+    } while (isTrashed(source) && !trashReaper.claim(source));
+    Files.createDirectories(target.getParent());
+    if (Files.isDirectory(source)) {
+      restoreDirectory(source, target);
+    } else {
+      restoreBundle(source, target);
+    }
+    log.atInfo().log("Restored repository of project %s from %s", project, source);
+    return source;
+  }
+
+  private Path getBasePath(Project.NameKey project) throws IOException {
+    if (!(repoManager instanceof LocalDiskRepositoryManager)) {
+      throw new IOException("Repositories can only be restored on local disk");
+    }
+    return ((LocalDiskRepositoryManager) repoManager).getBasePath(project);
+  }
+
+  /**
+   * Returns the newest archived or trashed repository of a project, ordered by the timestamp in
+   * their names. The trashed repositories which are not queued for deletion by the {@link
+   * TrashReaper}, or are not valid repositories, are skipped.
+   */
+  @VisibleForTesting
+  Optional<Path> findNewest(Project.NameKey project, Path basePath) throws IOException {
+    Path name = Path.of(project.get());
+    Pattern pattern =
+        Pattern.compile(
+            Pattern.quote(name.getFileName().toString())
+                + "\\.(\\d{14})\\.%(archived|deleted)%(\\"
+                + Constants.DOT_GIT_EXT
+                + "|\\"
+                + RepositoryBundle.EXTENSION
+                + ")");
+    Path newest = null;
+    String newestTimestamp = null;
+    for (Path folder :
+        List.of(
+            configuration.getArchiveFolder(),
+            basePath.resolve(configuration.getTrashFolderName()))) {
+      Path parent = folder.resolve(name).getParent();
+      if (!Files.isDirectory(parent)) {
+        continue;
+      }
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(parent)) {
+        for (Path entry : entries) {
+          Matcher m = pattern.matcher(entry.getFileName().toString());
+          if (m.matches()
+              && (newestTimestamp == null || m.group(1).compareTo(newestTimestamp) > 0)
+              && (!isTrashed(entry) || isClaimable(entry))) {
+            newest = entry;
+            newestTimestamp = m.group(1);
+          }
+        }
+      }
+    }
+    return Optional.ofNullable(newest);
+  }
+
+  private static boolean isTrashed(Path repo) {
+    return repo.getFileName().toString().contains(".%deleted%");
+  }
+
+  private boolean isClaimable(Path trashed) {
+    return trashReaper.isQueued(trashed)
+        && RepositoryCache.FileKey.isGitRepository(trashed.toFile(), FS.DETECTED);
+  }
+
+  private void restoreDirectory(Path source, Path target) throws IOException {
+    if (!isTrashed(source)) {
+      ArchivePackStore.detach(source);
+    }
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+      return;
+    } catch (AtomicMoveNotSupportedException e) {
+      log.atFine().log("%s is on another filesystem, copying it to %s", source, target);
+    }
+    Path tmp = restoringPath(target);
+    try {
+      archiveCopier.copy(source, tmp);
+      Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteQuietly(tmp, e);
+      throw e;
+    }
+    deletionPool.delete(source);
+  }
+
+  /** Fetches all the refs of a bundle into a new repository, streaming the bundle from disk. */
+  private void restoreBundle(Path bundle, Path target) throws IOException {
+    Path tmp = restoringPath(target);
+    try {
+      try (Repository repo = new FileRepositoryBuilder().setGitDir(tmp.toFile()).build()) {
+        repo.create(true);
+        FetchResult result;
+        try (Transport transport = Transport.open(repo, new URIish(bundle.toUri().toURL()))) {
+          result =
+              transport.fetch(NullProgressMonitor.INSTANCE, List.of(new RefSpec("+refs/*:refs/*")));
+        }
+        linkHead(repo, result.getAdvertisedRef(Constants.HEAD));
+      }
+      Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteQuietly(tmp, e);
+      throw e;
+    }
+    Files.delete(bundle);
+  }
+
+  /** Points HEAD to the branch which HEAD pointed to when the bundle was written. */
+  private static void linkHead(Repository repo, Ref bundledHead) throws IOException {
+    if (bundledHead == null || bundledHead.getObjectId() == null) {
+      return;
+    }
+    Ref current = repo.exactRef(Constants.HEAD);
+    if (current != null && bundledHead.getObjectId().equals(current.getObjectId())) {
+      return;
+    }
+    for (Ref ref : repo.getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+      if (bundledHead.getObjectId().equals(ref.getObjectId())) {
+        RefUpdate u = repo.updateRef(Constants.HEAD);
+        u.disableRefLog();
+        u.link(ref.getName());
+        return;
+      }
+    }
+  }
+
+  private static Path restoringPath(Path target) {
+    return target.resolveSibling(target.getFileName() + ".%restoring%");
+  }
+
+  private void deleteQuietly(Path path, Exception cause) {
+    try {
+      if (Files.exists(path)) {
+        deletionPool.delete(path);
+      }
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/** Number of files and bytes used by a repository on disk. */
+public class RepositoryUsage {
+  private long files;
+  private long bytes;
+
+  private RepositoryUsage() {}
+
+  static RepositoryUsage measure(Path repository) throws IOException {
+    RepositoryUsage usage = new RepositoryUsage();
+    Files.walkFileTree(
+        repository,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            usage.files++;
+            usage.bytes += attrs.size();
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException e) {
+            // The file was removed while walking, e.g. by a concurrent gc.
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return usage;
+  }
+
+  public long getFiles() {
+    return files;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+}
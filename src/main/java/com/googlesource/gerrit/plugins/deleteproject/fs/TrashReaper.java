@@ -0,0 +1,137 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.metrics.Timer0;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Deletes the trash folders of deleted repositories in the background, so that deleting a
+ * repository only costs the rename into the trash folder. Trash folders which could not be reaped,
+ * e.g. because the server was stopped, are eventually removed by {@link DeleteTrashFolders}.
+ *
+ * <p>A trash folder which is queued for deletion can be claimed back, e.g. to restore the
+ * repository, as long as the reaper did not start to delete it. Trash folders which are not queued,
+ * e.g. because they were left over by a restart or their deletion failed halfway, cannot be
+ * claimed.
+ */
+@Singleton
+public class TrashReaper implements LifecycleListener {
+  private static final FluentLogger log = FluentLogger.forEnclosingClass();
+  private static final String QUEUE_NAME = "DeleteProject-TrashReaper";
+
+  private final WorkQueue workQueue;
+  private final DeletionMetrics metrics;
+  private final DeletionPool deletionPool;
+  private volatile ScheduledExecutorService executor;
+
+  /** The trash folders which are queued for deletion. */
+  private final Set<Path> queued = new HashSet<>();
+
+  @Inject
+  TrashReaper(WorkQueue workQueue, DeletionMetrics metrics, DeletionPool deletionPool) {
+    this.workQueue = workQueue;
+    this.metrics = metrics;
+    this.deletionPool = deletionPool;
+  }
+
+  @Override
+  public void start() {
+    executor = workQueue.createQueue(1, QUEUE_NAME);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Schedules the deletion of a trash folder. The folder is deleted inline if the reaper is not
+   * running.
+   *
+   * @param trash the trash folder to delete.
+   * @param until the folder up to which empty parent folders of the trash folder are removed.
+   */
+  public void reap(Path trash, Path until) {
+    synchronized (this) {
+      queued.add(key(trash));
+    }
+    ScheduledExecutorService e = executor;
+    if (e != null) {
+      try {
+        e.submit(() -> delete(trash, until));
+        return;
+      } catch (RejectedExecutionException ex) {
+        log.atFine().log("Trash reaper is stopped, deleting %s inline", trash);
+      }
+    }
+    delete(trash, until);
+  }
+
+  /**
+   * Takes a trash folder back from the reaper, so that it is not deleted.
+   *
+   * @return whether the folder was claimed; false if it is not queued for deletion, e.g. because
+   *     the reaper started to delete it already.
+   */
+  public synchronized boolean claim(Path trash) {
+    return queued.remove(key(trash));
+  }
+
+  /** Whether a trash folder is queued for deletion, and can therefore be claimed. */
+  public synchronized boolean isQueued(Path trash) {
+    return queued.contains(key(trash));
+  }
+
+  private void delete(Path trash, Path until) {
+    Path key = key(trash);
+    synchronized (this) {
+      if (!queued.remove(key)) {
+        log.atFine().log("Skipping %s, which was claimed back from the trash", trash);
+        return;
+      }
+    }
+    try {
+      FileTreeDelete.Freed freed;
+      try (Timer0.Context ctx = metrics.recursiveDeleteLatency.start()) {
+        freed = deletionPool.delete(trash);
+      }
+      metrics.filesFreed.incrementBy(freed.files);
+      metrics.bytesFreed.incrementBy(freed.bytes);
+      RepositoryDelete.recursivelyDeleteEmptyParents(
+          trash.toFile().getParentFile(), until.toFile());
+    } catch (IOException e) {
+      log.atWarning().withCause(e).log("Error trying to delete %s or its parents", trash);
+    }
+  }
+
+  private static Path key(Path trash) {
+    return trash.toAbsolutePath().normalize();
+  }
+}
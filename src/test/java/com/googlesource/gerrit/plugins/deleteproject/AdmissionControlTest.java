@@ -0,0 +1,75 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionControlTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+
+  @Mock private Configuration cfg;
+
+  @Before
+  public void setUp() {
+    when(cfg.getMaxConcurrentFilesystemDeletions()).thenReturn(1);
+  }
+
+  @Test
+  public void shouldQueueDeletionsOverTheLimit() throws Exception {
+    AdmissionControl admissionControl = new AdmissionControl(cfg, new DisabledMetricMaker());
+    CountDownLatch admitted = new CountDownLatch(1);
+    Thread waiting;
+    try (AdmissionControl.Permit permit = admissionControl.admitFilesystem(PROJECT)) {
+      waiting =
+          new Thread(
+              () -> {
+                try (AdmissionControl.Permit p = admissionControl.admitFilesystem(PROJECT)) {
+                  admitted.countDown();
+                } catch (Exception e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+      waiting.start();
+      while (admissionControl.getFilesystemQueueDepth() == 0) {
+        Thread.sleep(10);
+      }
+      assertThat(admitted.getCount()).isEqualTo(1);
+    }
+    assertThat(admitted.await(10, SECONDS)).isTrue();
+    waiting.join();
+    assertThat(admissionControl.getFilesystemQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotLimitIndexDeletionsByDefault() throws Exception {
+    AdmissionControl admissionControl = new AdmissionControl(cfg, new DisabledMetricMaker());
+    try (AdmissionControl.Permit first = admissionControl.admitIndex(PROJECT);
+        AdmissionControl.Permit second = admissionControl.admitIndex(PROJECT)) {
+      assertThat(admissionControl.getIndexQueueDepth()).isEqualTo(0);
+    }
+  }
+}
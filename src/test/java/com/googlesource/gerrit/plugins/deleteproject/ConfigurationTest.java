@@ -20,6 +20,7 @@ import static org.mockito.Mockito.when;
 
 import com.google.gerrit.server.config.PluginConfig;
 import com.google.gerrit.server.config.PluginConfigFactory;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration.ArchiveFormat;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
@@ -94,6 +95,59 @@ public class ConfigurationTest {
         .isEqualTo(customArchiveFolder.toString());
   }
 
+  @Test
+  public void deduplicatedArchiveFormatIsLoadedWithoutProbingArchiveFolder() {
+    PluginConfig.Update pluginConfig = PluginConfig.Update.forTest(PLUGIN_NAME, new Config());
+    pluginConfig.setString("archiveFormat", "DEDUPLICATED");
+    pluginConfig.setString("archiveFolder", customArchiveFolder.toString());
+
+    when(pluginConfigFactoryMock.getFromGerritConfig(PLUGIN_NAME))
+        .thenReturn(pluginConfig.asPluginConfig());
+    deleteConfig =
+        new Configuration(pluginConfigFactoryMock, PLUGIN_NAME, pluginDataDir, new Config());
+
+    assertThat(deleteConfig.getArchiveFormat()).isEqualTo(ArchiveFormat.DEDUPLICATED);
+    assertThat(customArchiveFolder.toFile().list()).isEmpty();
+  }
+
+  @Test
+  public void stageThreadsAreLoaded() {
+    PluginConfig.Update pluginConfig = PluginConfig.Update.forTest(PLUGIN_NAME, new Config());
+    pluginConfig.setInt("deletionThreads", 3);
+    pluginConfig.setInt("filesystemStageThreads", 1);
+    pluginConfig.setInt("stageQueueSize", 5);
+
+    when(pluginConfigFactoryMock.getFromGerritConfig(PLUGIN_NAME))
+        .thenReturn(pluginConfig.asPluginConfig());
+    deleteConfig =
+        new Configuration(pluginConfigFactoryMock, PLUGIN_NAME, pluginDataDir, new Config());
+
+    assertThat(deleteConfig.getStageThreads(DeletePhase.INDEX)).isEqualTo(3);
+    assertThat(deleteConfig.getStageThreads(DeletePhase.FILESYSTEM)).isEqualTo(1);
+    assertThat(deleteConfig.getStageQueueSize()).isEqualTo(5);
+  }
+
+  @Test
+  public void batchSizesAreAtLeastOne() {
+    PluginConfig.Update pluginConfig = PluginConfig.Update.forTest(PLUGIN_NAME, new Config());
+    pluginConfig.setInt("unstarBatchSize", 0);
+    pluginConfig.setInt("userRefsBatchSize", 0);
+    pluginConfig.setInt("watchBatchSize", -1);
+    pluginConfig.setInt("indexPurgeBatchSize", 0);
+    pluginConfig.setInt("reindexBatchSize", -1);
+
+    when(pluginConfigFactoryMock.getFromGerritConfig(PLUGIN_NAME))
+        .thenReturn(pluginConfig.asPluginConfig());
+    deleteConfig =
+        new Configuration(pluginConfigFactoryMock, PLUGIN_NAME, pluginDataDir, new Config());
+
+    assertThat(deleteConfig.getUnstarBatchSize()).isEqualTo(1);
+    assertThat(deleteConfig.getUserRefsBatchSize()).isEqualTo(1);
+    assertThat(deleteConfig.getWatchBatchSize()).isEqualTo(1);
+    assertThat(deleteConfig.getIndexPurgeBatchSize()).isEqualTo(1);
+    assertThat(deleteConfig.getReindexBatchSize()).isEqualTo(1);
+  }
+
   @Test
   public void archiveDurationWithUnitIsLoaded() {
     PluginConfig.Update pluginConfig = PluginConfig.Update.forTest(PLUGIN_NAME, new Config());
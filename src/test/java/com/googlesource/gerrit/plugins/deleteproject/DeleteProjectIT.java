@@ -37,12 +37,15 @@ import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.RefNames;
 import com.google.gerrit.extensions.client.ProjectState;
 import com.google.gerrit.extensions.restapi.RestApiException;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.lib.Constants;
@@ -112,6 +115,40 @@ public class DeleteProjectIT extends LightweightPluginDaemonTest {
     assertWatchRemoved();
   }
 
+  @Test
+  @UseLocalDisk
+  public void testHttpDeleteProjectsWaitsForAllDeletions() throws Exception {
+    createChange();
+    Project.NameKey otherProject = projectOperations.newProject().create();
+    File otherProjectDir = verifyProjectRepoExists(otherProject);
+
+    DeleteProjects.Input i = new DeleteProjects.Input();
+    i.projects = List.of(project.get(), otherProject.get(), otherProject.get(), "unknown");
+    RestResponse r = adminRestSession.post("/config/server/delete-project~delete-projects", i);
+    r.assertOK();
+
+    Map<String, DeletionTaskInfo> results =
+        newGson()
+            .fromJson(r.getReader(), new TypeToken<Map<String, DeletionTaskInfo>>() {}.getType());
+    assertThat(results.keySet())
+        .containsExactly(project.get(), otherProject.get(), "unknown")
+        .inOrder();
+    assertThat(results.get(project.get()).status).isEqualTo("FAILED");
+    assertThat(results.get(project.get()).error).contains("has open changes");
+    assertThat(results.get(otherProject.get()).status).isEqualTo("SUCCEEDED");
+    assertThat(results.get("unknown").status).isEqualTo("FAILED");
+    assertThat(results.get("unknown").error).isEqualTo("Project unknown not found");
+    assertThat(projectDir.exists()).isTrue();
+    assertThat(otherProjectDir.exists()).isFalse();
+  }
+
+  @Test
+  public void testHttpDeleteProjectsRequiresProjects() throws Exception {
+    adminRestSession
+        .post("/config/server/delete-project~delete-projects", new DeleteProjects.Input())
+        .assertBadRequest();
+  }
+
   @Test
   @UseLocalDisk
   public void testSshDeleteProjectWithoutOptions() throws Exception {
@@ -169,6 +206,56 @@ public class DeleteProjectIT extends LightweightPluginDaemonTest {
     assertWatchRemoved();
   }
 
+  @Test
+  @UseLocalDisk
+  public void testSshDeleteMultipleProjects() throws Exception {
+    Project.NameKey otherProject = projectOperations.newProject().create();
+    File otherProjectDir = verifyProjectRepoExists(otherProject);
+
+    String cmd =
+        createDeleteCommand("--threads", "2", "--force", project.get(), otherProject.get());
+    String out = adminSshSession.exec(cmd);
+
+    assertThat(adminSshSession.getError()).isNull();
+    assertThat(out).contains("SUCCEEDED " + project.get());
+    assertThat(out).contains("SUCCEEDED " + otherProject.get());
+    assertThat(projectDir.exists()).isFalse();
+    assertThat(otherProjectDir.exists()).isFalse();
+  }
+
+  @Test
+  @UseLocalDisk
+  public void testSshDeleteMultipleProjectsOnlyOnce() throws Exception {
+    Project.NameKey otherProject = projectOperations.newProject().create();
+
+    String cmd = createDeleteCommand("--force", project.get(), otherProject.get(), project.get());
+    String out = adminSshSession.exec(cmd);
+
+    assertThat(adminSshSession.getError()).isNull();
+    assertThat(out)
+        .isEqualTo(
+            String.format("SUCCEEDED %s\nSUCCEEDED %s\n", project.get(), otherProject.get()));
+    assertThat(projectDir.exists()).isFalse();
+  }
+
+  @Test
+  @UseLocalDisk
+  public void testSshDeleteMultipleProjectsReportsFailures() throws Exception {
+    createChange();
+    Project.NameKey otherProject = projectOperations.newProject().create();
+    File otherProjectDir = verifyProjectRepoExists(otherProject);
+
+    String cmd = createDeleteCommand(project.get(), otherProject.get());
+    String out = adminSshSession.exec(cmd);
+
+    assertThat(out).contains("FAILED " + project.get());
+    assertThat(out).contains("SUCCEEDED " + otherProject.get());
+    assertThat(adminSshSession.getError())
+        .isEqualTo("fatal: 1 of 2 projects could not be deleted\n");
+    assertThat(projectDir.exists()).isTrue();
+    assertThat(otherProjectDir.exists()).isFalse();
+  }
+
   @Test
   @UseLocalDisk
   @GerritConfig(name = "plugin.delete-project.hideProjectOnPreserve", value = "true")
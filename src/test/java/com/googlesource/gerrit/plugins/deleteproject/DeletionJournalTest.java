@@ -0,0 +1,117 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Project;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeletionJournalTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("test-project");
+  private static final Account.Id ACCOUNT = Account.id(1000000);
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File pluginData;
+  private DeletionJournal journal;
+
+  @Before
+  public void setUp() throws Exception {
+    pluginData = tempFolder.newFolder("data");
+    journal = new DeletionJournal(pluginData);
+  }
+
+  @Test
+  public void shouldHaveNoPendingDeletionsInitially() {
+    assertThat(journal.pending()).isEmpty();
+  }
+
+  @Test
+  public void shouldResumeWithCompletedPhases() throws Exception {
+    Input input = new Input();
+    input.force = true;
+    DeletionJournal.Entry entry = journal.begin(PROJECT, ACCOUNT, input);
+    entry.completed(DeletePhase.INDEX);
+    entry.completed(DeletePhase.STARS);
+
+    DeletionJournal.Entry pending = new DeletionJournal(pluginData).pending().get(0);
+    assertThat(pending.getId()).isEqualTo(entry.getId());
+    assertThat(pending.getProject()).isEqualTo(PROJECT);
+    assertThat(pending.getAccountId()).isEqualTo(ACCOUNT);
+    assertThat(pending.getInput().force).isTrue();
+    assertThat(pending.getInput().preserve).isFalse();
+    assertThat(pending.isResumed()).isTrue();
+    assertThat(pending.isCompleted(DeletePhase.INDEX)).isTrue();
+    assertThat(pending.isCompleted(DeletePhase.STARS)).isTrue();
+    assertThat(pending.isCompleted(DeletePhase.WATCHES)).isFalse();
+  }
+
+  @Test
+  public void shouldNotResumeFinishedDeletions() throws Exception {
+    DeletionJournal.Entry entry = journal.begin(PROJECT, ACCOUNT, new Input());
+    assertThat(entry.isResumed()).isFalse();
+    entry.completed(DeletePhase.INDEX);
+    entry.finish(null);
+
+    assertThat(journal.pending()).isEmpty();
+    assertThat(journal.failed()).isEmpty();
+  }
+
+  @Test
+  public void shouldKeepFailedDeletionsUntilDiscarded() throws Exception {
+    DeletionJournal.Entry entry = journal.begin(PROJECT, ACCOUNT, new Input());
+    entry.completed(DeletePhase.INDEX);
+    entry.finish(new IOException("failure"));
+
+    assertThat(journal.pending()).isEmpty();
+    DeletionJournal.Entry failed = new DeletionJournal(pluginData).failed().get(0);
+    assertThat(failed.getId()).isEqualTo(entry.getId());
+    assertThat(failed.getProject()).isEqualTo(PROJECT);
+    assertThat(failed.isFailed()).isTrue();
+
+    failed.discard();
+    assertThat(journal.failed()).isEmpty();
+  }
+
+  @Test
+  public void shouldQuarantineJournalWithUnknownPhase() throws Exception {
+    DeletionJournal.Entry entry = journal.begin(PROJECT, ACCOUNT, new Input());
+    DeletionJournal.Entry other = journal.begin(PROJECT, ACCOUNT, new Input());
+    Path file = pluginData.toPath().resolve("journal").resolve(entry.getId() + ".config");
+    FileBasedConfig cfg = new FileBasedConfig(file.toFile(), FS.DETECTED);
+    cfg.load();
+    cfg.setStringList("deletion", null, "completed", List.of("INDEX", "UNKNOWN"));
+    cfg.save();
+
+    DeletionJournal reloaded = new DeletionJournal(pluginData);
+    assertThat(reloaded.pending()).hasSize(1);
+    assertThat(reloaded.pending().get(0).getId()).isEqualTo(other.getId());
+    assertThat(Files.exists(file)).isFalse();
+    assertThat(Files.exists(file.resolveSibling(file.getFileName() + ".invalid"))).isTrue();
+  }
+}
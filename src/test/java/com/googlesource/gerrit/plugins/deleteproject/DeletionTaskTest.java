@@ -0,0 +1,93 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Project;
+import org.junit.Test;
+
+public class DeletionTaskTest {
+  private static final String TASK_ID = "task-id";
+  private static final Project.NameKey PROJECT = Project.nameKey("test-project");
+  private static final Account.Id ACCOUNT = Account.id(1000000);
+
+  @Test
+  public void shouldBeQueuedWhenCreated() {
+    DeletionTaskInfo info = newTask().toInfo();
+
+    assertThat(info.id).isEqualTo(TASK_ID);
+    assertThat(info.project).isEqualTo(PROJECT.get());
+    assertThat(info.status).isEqualTo(DeletionTask.Status.QUEUED.name());
+    assertThat(info.phase).isNull();
+    assertThat(info.progress).isEqualTo(0);
+    assertThat(info.finished).isNull();
+  }
+
+  @Test
+  public void shouldReportPhaseAndProgress() {
+    DeletionTask task = newTask();
+    task.running();
+    task.onPhaseStarted(DeletePhase.INDEX);
+    task.onPhaseCompleted(DeletePhase.INDEX);
+    task.onPhaseStarted(DeletePhase.STARS);
+    task.onPhaseCompleted(DeletePhase.STARS);
+    task.onPhaseStarted(DeletePhase.USER_REFS);
+    task.onPhaseCompleted(DeletePhase.USER_REFS);
+    task.onPhaseStarted(DeletePhase.WATCHES);
+
+    DeletionTaskInfo info = task.toInfo();
+    assertThat(info.status).isEqualTo(DeletionTask.Status.RUNNING.name());
+    assertThat(info.phase).isEqualTo(DeletePhase.WATCHES.name());
+    assertThat(info.progress).isEqualTo(42);
+  }
+
+  @Test
+  public void shouldReportSuccess() {
+    DeletionTask task = newTask();
+    task.running();
+    for (DeletePhase phase : DeletePhase.phases(false)) {
+      task.onPhaseStarted(phase);
+      task.onPhaseCompleted(phase);
+    }
+    task.succeeded();
+
+    DeletionTaskInfo info = task.toInfo();
+    assertThat(task.isDone()).isTrue();
+    assertThat(info.status).isEqualTo(DeletionTask.Status.SUCCEEDED.name());
+    assertThat(info.progress).isEqualTo(100);
+    assertThat(info.finished).isNotNull();
+    assertThat(info.error).isNull();
+  }
+
+  @Test
+  public void shouldReportFailure() {
+    DeletionTask task = newTask();
+    task.running();
+    task.onPhaseStarted(DeletePhase.INDEX);
+    task.failed(new IllegalStateException("index unavailable"));
+
+    DeletionTaskInfo info = task.toInfo();
+    assertThat(task.isDone()).isTrue();
+    assertThat(info.status).isEqualTo(DeletionTask.Status.FAILED.name());
+    assertThat(info.phase).isEqualTo(DeletePhase.INDEX.name());
+    assertThat(info.error).isEqualTo("index unavailable");
+  }
+
+  private DeletionTask newTask() {
+    return new DeletionTask(TASK_ID, PROJECT, ACCOUNT, DeletePhase.phases(false).size());
+  }
+}
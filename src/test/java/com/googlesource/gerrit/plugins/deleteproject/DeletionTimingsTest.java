@@ -0,0 +1,48 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.Test;
+
+public class DeletionTimingsTest {
+  private final DeletionTimings timings = new DeletionTimings();
+
+  @Test
+  public void noEstimateWithoutRecordedTimings() {
+    assertThat(timings.estimate(DeletePhase.STARS, 10)).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void estimateScalesWithUnits() {
+    timings.record(DeletePhase.STARS, 100, Duration.ofMillis(200));
+
+    assertThat(timings.estimate(DeletePhase.STARS, 1000))
+        .isEqualTo(Optional.of(Duration.ofMillis(2000)));
+    assertThat(timings.estimate(DeletePhase.WATCHES, 1000)).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void estimateFollowsRecentTimings() {
+    timings.record(DeletePhase.INDEX, 1, Duration.ofMillis(100));
+    timings.record(DeletePhase.INDEX, 1, Duration.ofMillis(600));
+
+    assertThat(timings.estimate(DeletePhase.INDEX, 1))
+        .isEqualTo(Optional.of(Duration.ofMillis(200)));
+  }
+}
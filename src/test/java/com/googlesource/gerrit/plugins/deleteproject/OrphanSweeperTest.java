@@ -0,0 +1,230 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.NotifyConfig.NotifyType;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.ProjectWatchKey;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.account.AccountCache;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.account.Accounts;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.project.ProjectState;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.googlesource.gerrit.plugins.deleteproject.DeleteProject.Input;
+import com.googlesource.gerrit.plugins.deleteproject.database.ChangeNumberSet;
+import com.googlesource.gerrit.plugins.deleteproject.database.DatabaseDeleteHandler;
+import com.googlesource.gerrit.plugins.deleteproject.database.IndexPurger;
+import com.googlesource.gerrit.plugins.deleteproject.database.StarredChangesRemover;
+import com.googlesource.gerrit.plugins.deleteproject.database.UserRefsRemover;
+import com.googlesource.gerrit.plugins.deleteproject.fs.FilesystemDeleteHandler;
+import java.util.Optional;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrphanSweeperTest {
+  private static final Project.NameKey ORPHAN = Project.nameKey("orphan");
+  private static final Project.NameKey EXISTING = Project.nameKey("existing");
+  private static final Change.Id ORPHANED_CHANGE = Change.id(1);
+  private static final Change.Id EXISTING_CHANGE = Change.id(2);
+  private static final Change.Id UNINDEXED_CHANGE = Change.id(3);
+  private static final Account.Id ACCOUNT = Account.id(1000000);
+
+  @Mock private WorkQueue workQueue;
+  @Mock private Configuration cfg;
+  @Mock private DatabaseDeleteHandler dbHandler;
+  @Mock private FilesystemDeleteHandler fsHandler;
+  @Mock private StarredChangesRemover starredChangesRemover;
+  @Mock private UserRefsRemover userRefsRemover;
+  @Mock private Accounts accounts;
+  @Mock private AccountCache accountCache;
+  @Mock private AccountState watcher;
+  @Mock private IndexPurger indexPurger;
+  @Mock private DeletionJournal journal;
+  @Mock private ProjectCache projectCache;
+  @Mock private GitRepositoryManager repoManager;
+  @Mock private InternalChangeQuery query;
+  @Mock private ChangeNumberSet starred;
+  @Mock private ChangeNumberSet withRefs;
+  @Mock private ChangeNumberSet changes;
+  @Mock private Repository existingRepo;
+  @Mock private RefDatabase existingRefs;
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private OrphanSweeper sweeper;
+
+  @Before
+  public void setUp() throws Exception {
+    when(cfg.getSchedule()).thenReturn(Optional.empty());
+    when(cfg.getOrphanSweepMaxTime()).thenReturn(600L);
+    when(journal.failed()).thenReturn(ImmutableList.of());
+    when(starredChangesRemover.getStarredChanges()).thenReturn(starred);
+    when(userRefsRemover.getChangesWithRefs()).thenReturn(withRefs);
+    when(starred.union(withRefs)).thenReturn(changes);
+    ImmutableList<Change.Id> batch =
+        ImmutableList.of(ORPHANED_CHANGE, EXISTING_CHANGE, UNINDEXED_CHANGE);
+    when(changes.after(0, 1000)).thenReturn(batch);
+    when(changes.after(3, 1000)).thenReturn(ImmutableList.of());
+    ChangeData orphaned = change(ORPHANED_CHANGE, ORPHAN);
+    ChangeData existing = change(EXISTING_CHANGE, EXISTING);
+    when(query.byLegacyChangeIds(batch)).thenReturn(ImmutableList.of(orphaned, existing));
+    when(projectCache.get(ORPHAN)).thenReturn(Optional.empty());
+    when(projectCache.get(EXISTING)).thenReturn(Optional.of(mock(ProjectState.class)));
+    when(projectCache.all()).thenReturn(ImmutableSortedSet.of(EXISTING));
+    when(repoManager.list()).thenReturn(ImmutableSortedSet.of(EXISTING));
+    when(repoManager.openRepository(EXISTING)).thenReturn(existingRepo);
+    when(existingRepo.getRefDatabase()).thenReturn(existingRefs);
+    when(accounts.allIds()).thenReturn(ImmutableSortedSet.of(ACCOUNT));
+    when(accountCache.get(ImmutableSet.of(ACCOUNT))).thenReturn(ImmutableMap.of(ACCOUNT, watcher));
+    when(watcher.projectWatches())
+        .thenReturn(
+            ImmutableMap.of(
+                ProjectWatchKey.create(ORPHAN, null),
+                ImmutableSet.of(NotifyType.ALL_COMMENTS),
+                ProjectWatchKey.create(ORPHAN, "branch:master"),
+                ImmutableSet.of(NotifyType.NEW_CHANGES),
+                ProjectWatchKey.create(EXISTING, null),
+                ImmutableSet.of(NotifyType.ALL_COMMENTS)));
+    sweeper =
+        new OrphanSweeper(
+            workQueue,
+            cfg,
+            tempFolder.newFolder("data"),
+            dbHandler,
+            fsHandler,
+            starredChangesRemover,
+            userRefsRemover,
+            accounts,
+            accountCache,
+            indexPurger,
+            journal,
+            projectCache,
+            repoManager,
+            () -> query,
+            new DeletionMetrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void shouldPurgeDataOfProjectsWhichNoLongerExist() throws Exception {
+    sweeper.run();
+    sweeper.run();
+
+    verify(dbHandler).deleteOrphan(Project.builder(ORPHAN).build());
+    verify(dbHandler, never()).deleteOrphan(Project.builder(EXISTING).build());
+  }
+
+  @Test
+  public void shouldNotPurgeProjectsBeingPurgedFromIndex() throws Exception {
+    when(indexPurger.isTombstoned(ORPHAN)).thenReturn(true);
+
+    sweeper.run();
+    sweeper.run();
+
+    verify(dbHandler, never()).deleteOrphan(any());
+    verify(dbHandler, never()).deleteOrphanedWatches(any(), any());
+  }
+
+  @Test
+  public void shouldPurgeUnindexedChangesWhichBelongToNoProject() throws Exception {
+    sweeper.run();
+
+    verify(dbHandler).purgeOrphanedChanges(ImmutableSet.of(UNINDEXED_CHANGE));
+  }
+
+  @Test
+  public void shouldNotPurgeUnindexedChangesWhichBelongToExistingProject() throws Exception {
+    when(existingRefs.exactRef(RefNames.changeMetaRef(UNINDEXED_CHANGE)))
+        .thenReturn(mock(Ref.class));
+
+    sweeper.run();
+
+    verify(dbHandler, never()).purgeOrphanedChanges(any());
+  }
+
+  @Test
+  public void shouldRemoveWatchesOfProjectsWhichNoLongerExist() throws Exception {
+    sweeper.run();
+
+    verify(dbHandler).deleteOrphanedWatches(ORPHAN, ImmutableList.of(watcher));
+    verify(dbHandler, never()).deleteOrphanedWatches(EXISTING, ImmutableList.of(watcher));
+  }
+
+  @Test
+  public void shouldDeleteRepositoryOfFailedDeletion() throws Exception {
+    DeletionJournal.Entry entry = failedDeletion(ORPHAN);
+    when(repoManager.openRepository(ORPHAN)).thenReturn(mock(Repository.class));
+
+    sweeper.run();
+
+    verify(entry).discard();
+    verify(dbHandler).unstarChanges(Project.builder(ORPHAN).build());
+    verify(dbHandler).purgeUserRefs(Project.builder(ORPHAN).build());
+    verify(fsHandler).delete(ORPHAN, false);
+    verify(dbHandler).deleteOrphan(Project.builder(ORPHAN).build());
+  }
+
+  @Test
+  public void shouldDiscardFailedDeletionOfExistingProject() throws Exception {
+    DeletionJournal.Entry entry = failedDeletion(EXISTING);
+
+    sweeper.run();
+
+    verify(entry).discard();
+    verify(fsHandler, never()).delete(any(), anyBoolean());
+    verify(dbHandler, never()).deleteOrphan(Project.builder(EXISTING).build());
+  }
+
+  private DeletionJournal.Entry failedDeletion(Project.NameKey project) {
+    DeletionJournal.Entry entry = mock(DeletionJournal.Entry.class);
+    when(entry.getProject()).thenReturn(project);
+    when(entry.getInput()).thenReturn(new Input());
+    when(journal.failed()).thenReturn(ImmutableList.of(entry));
+    return entry;
+  }
+
+  private static ChangeData change(Change.Id id, Project.NameKey project) {
+    ChangeData cd = mock(ChangeData.class);
+    when(cd.getId()).thenReturn(id);
+    when(cd.project()).thenReturn(project);
+    return cd;
+  }
+}
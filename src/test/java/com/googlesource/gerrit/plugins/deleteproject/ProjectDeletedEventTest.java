@@ -15,6 +15,7 @@
 package com.googlesource.gerrit.plugins.deleteproject;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -22,6 +23,7 @@ import static org.mockito.Mockito.when;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.Project.NameKey;
 import com.google.gerrit.extensions.registration.DynamicItem;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.IdentifiedUser;
 import com.google.gerrit.server.events.EventDispatcher;
@@ -58,6 +60,10 @@ public class ProjectDeletedEventTest {
   @Mock private HideProject hideProject;
   @Mock private IdentifiedUser currentUser;
   @Mock private ProjectState state;
+  @Mock private DeletionQueue deletionQueue;
+  @Mock private DeletionJournal journal;
+  @Mock private DeletionJournal.Entry journalEntry;
+  @Mock private DeletionImpact deletionImpact;
   @Captor private ArgumentCaptor<ProjectDeletedEvent> projectDeletedEventCaptor;
 
   private Project project = Project.builder(PROJECT_NAME_KEY).build();
@@ -69,6 +75,7 @@ public class ProjectDeletedEventTest {
     when(dispatcherProvider.get()).thenReturn(dispatcher);
     when(userProvider.get()).thenReturn(currentUser);
     when(state.getProject()).thenReturn(project);
+    when(journal.begin(any(), any(), any())).thenReturn(journalEntry);
     objectUnderTest =
         new DeleteProject(
             dbHandler,
@@ -80,7 +87,13 @@ public class ProjectDeletedEventTest {
             cfg,
             hideProject,
             dispatcherProvider,
-            INSTANCE_ID);
+            INSTANCE_ID,
+            deletionQueue,
+            journal,
+            new DeletionMetrics(new DisabledMetricMaker()),
+            new DeletionTimings(),
+            deletionImpact,
+            new AdmissionControl(cfg, new DisabledMetricMaker()));
   }
 
   @Test
@@ -0,0 +1,104 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.git.GarbageCollection;
+import com.google.gerrit.server.git.GarbageCollectionResult;
+import com.google.gerrit.server.git.WorkQueue;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import com.googlesource.gerrit.plugins.deleteproject.FakeScheduledExecutorService;
+import com.googlesource.gerrit.plugins.deleteproject.TimeMachine;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AllUsersCompactorTest {
+  private static final AllUsersName ALL_USERS = new AllUsersName("All-Users");
+  private static final long THRESHOLD = 100;
+  private static final long MIN_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+  @Mock private GarbageCollection.Factory gcFactory;
+  @Mock private GarbageCollection gc;
+  @Mock private WorkQueue workQueue;
+  @Mock private Configuration cfg;
+
+  private FakeScheduledExecutorService executor;
+  private AllUsersCompactor compactor;
+
+  @Before
+  public void setUp() {
+    TimeMachine.useFixedClockAt(Instant.parse("2026-01-01T00:00:00Z"));
+    executor = new FakeScheduledExecutorService();
+    when(cfg.getAllUsersGcThreshold()).thenReturn(THRESHOLD);
+    when(cfg.getAllUsersGcMinInterval()).thenReturn(MIN_INTERVAL_MS);
+    when(workQueue.createQueue(anyInt(), anyString())).thenReturn(executor);
+    when(gcFactory.create()).thenReturn(gc);
+    when(gc.run(any())).thenReturn(new GarbageCollectionResult());
+    DisabledMetricMaker metricMaker = new DisabledMetricMaker();
+    compactor =
+        new AllUsersCompactor(
+            gcFactory, ALL_USERS, workQueue, cfg, new DeletionMetrics(metricMaker), metricMaker);
+    compactor.start();
+  }
+
+  @After
+  public void tearDown() {
+    compactor.stop();
+    TimeMachine.useSystemPctZoneClock();
+  }
+
+  @Test
+  public void shouldNotGcBelowThreshold() {
+    compactor.recordChurn(THRESHOLD - 1);
+    verify(gc, never()).run(any());
+  }
+
+  @Test
+  public void shouldGcOnceThresholdIsReached() {
+    compactor.recordChurn(THRESHOLD - 1);
+    compactor.recordChurn(1);
+    verify(gc).run(ImmutableList.of(ALL_USERS));
+  }
+
+  @Test
+  public void shouldThrottleGc() {
+    compactor.recordChurn(THRESHOLD);
+    verify(gc).run(any());
+
+    compactor.recordChurn(THRESHOLD);
+    verify(gc).run(any());
+
+    executor.advance(MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    verify(gc, times(2)).run(any());
+  }
+}
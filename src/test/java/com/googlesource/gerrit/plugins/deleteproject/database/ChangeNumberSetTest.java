@@ -0,0 +1,69 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.RefNames;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.Test;
+
+public class ChangeNumberSetTest {
+  @Test
+  public void shouldContainDistinctChangeNumbersOfRefs() {
+    ChangeNumberSet set =
+        ChangeNumberSet.fromRefs(
+            ImmutableList.of(
+                ref("refs/starred-changes/45/12345/1000001"),
+                ref("refs/starred-changes/01/1/1000001"),
+                ref("refs/starred-changes/45/12345/1000002"),
+                ref("refs/starred-changes/invalid")),
+            RefNames.REFS_STARRED_CHANGES);
+
+    assertThat(set.size()).isEqualTo(2);
+    assertThat(set.contains(Change.id(1))).isTrue();
+    assertThat(set.contains(Change.id(12345))).isTrue();
+    assertThat(set.contains(Change.id(45))).isFalse();
+  }
+
+  @Test
+  public void shouldReturnChangesOfUnionInAscendingOrder() {
+    ChangeNumberSet starred =
+        ChangeNumberSet.fromRefs(
+            ImmutableList.of(
+                ref("refs/starred-changes/03/3/1000001"), ref("refs/starred-changes/01/1/1000001")),
+            RefNames.REFS_STARRED_CHANGES);
+    ChangeNumberSet drafts =
+        ChangeNumberSet.fromRefs(
+            ImmutableList.of(
+                ref("refs/draft-comments/02/2/1000001"), ref("refs/draft-comments/03/3/1000002")),
+            RefNames.REFS_DRAFT_COMMENTS);
+
+    ChangeNumberSet union = starred.union(drafts);
+
+    assertThat(union.size()).isEqualTo(3);
+    assertThat(union.after(0, 2)).containsExactly(Change.id(1), Change.id(2)).inOrder();
+    assertThat(union.after(2, 2)).containsExactly(Change.id(3));
+    assertThat(union.after(3, 2)).isEmpty();
+  }
+
+  private static Ref ref(String name) {
+    return new ObjectIdRef.Unpeeled(Ref.Storage.LOOSE, name, ObjectId.zeroId());
+  }
+}
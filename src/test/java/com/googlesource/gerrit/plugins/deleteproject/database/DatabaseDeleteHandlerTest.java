@@ -0,0 +1,252 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.NotifyConfig.NotifyType;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.ProjectWatchKey;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.StarredChangesReader;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.account.AccountsUpdate;
+import com.google.gerrit.server.account.AccountsUpdate.ConfigureStatelessDelta;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.index.change.ChangeIndexer;
+import com.google.gerrit.server.notedb.ChangeNotes;
+import com.google.gerrit.server.query.account.InternalAccountQuery;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatabaseDeleteHandlerTest {
+  private static final Project PROJECT = Project.builder(Project.nameKey("project")).build();
+
+  @Mock private StarredChangesReader starredChangesReader;
+  @Mock private ChangeIndexer changeIndexer;
+  @Mock private ChangeNotes.Factory changeNotesFactory;
+  @Mock private GitRepositoryManager repoManager;
+  @Mock private InternalAccountQuery accountQuery;
+  @Mock private InternalChangeQuery changeQuery;
+  @Mock private AccountsUpdate accountsUpdate;
+  @Mock private StarredChangesRemover starredChangesRemover;
+  @Mock private UserRefsRemover userRefsRemover;
+  @Mock private IndexPurger indexPurger;
+  @Mock private AllUsersCompactor allUsersCompactor;
+  @Mock private Configuration config;
+
+  private DatabaseDeleteHandler handler;
+  private InMemoryRepository repo;
+  private TestRepository<InMemoryRepository> testRepo;
+  private RevCommit commit;
+
+  @Before
+  public void setUp() throws Exception {
+    repo = new InMemoryRepository(new DfsRepositoryDescription("project"));
+    testRepo = new TestRepository<>(repo);
+    commit = testRepo.commit().create();
+    handler =
+        new DatabaseDeleteHandler(
+            starredChangesReader,
+            changeIndexer,
+            changeNotesFactory,
+            repoManager,
+            () -> accountQuery,
+            () -> changeQuery,
+            () -> accountsUpdate,
+            new DeletionMetrics(new DisabledMetricMaker()),
+            starredChangesRemover,
+            userRefsRemover,
+            indexPurger,
+            allUsersCompactor,
+            config);
+  }
+
+  @Test
+  public void shouldEnumerateChangesOfShardFromMetaRefs() throws Exception {
+    createRefs(
+        "refs/changes/01/1/meta",
+        "refs/changes/01/1/1",
+        "refs/changes/01/1/2",
+        "refs/changes/01/101/meta",
+        "refs/changes/01/12301/meta",
+        "refs/changes/10/10/meta",
+        "refs/changes/02/2/meta");
+
+    assertThat(DatabaseDeleteHandler.getChangeIdsOfShard(repo, 1))
+        .containsExactly(Change.id(1), Change.id(101), Change.id(12301));
+  }
+
+  @Test
+  public void shouldEnumerateChangesOfFirstShard() throws Exception {
+    createRefs("refs/changes/00/100/meta", "refs/changes/00/1000/meta", "refs/changes/01/1/meta");
+
+    assertThat(DatabaseDeleteHandler.getChangeIdsOfShard(repo, 0))
+        .containsExactly(Change.id(100), Change.id(1000));
+  }
+
+  @Test
+  public void shouldNotConfuseShardWithPrefixOfLongerShard() throws Exception {
+    createRefs("refs/changes/99/99/meta", "refs/changes/9/9/meta", "refs/changes/990/990/meta");
+
+    assertThat(DatabaseDeleteHandler.getChangeIdsOfShard(repo, 9)).isEmpty();
+    assertThat(DatabaseDeleteHandler.getChangeIdsOfShard(repo, 99))
+        .containsExactly(Change.id(99));
+  }
+
+  @Test
+  public void shouldIgnoreInvalidChangeRefs() throws Exception {
+    createRefs(
+        "refs/changes/03/3/meta",
+        "refs/changes/03/4/meta",
+        "refs/changes/03/abc/meta",
+        "refs/changes/03/meta");
+
+    assertThat(DatabaseDeleteHandler.getChangeIdsOfShard(repo, 3)).containsExactly(Change.id(3));
+  }
+
+  @Test
+  public void shouldEnumerateEveryChangeOnceAcrossAllShards() throws Exception {
+    List<Change.Id> expected = new ArrayList<>();
+    for (int id = 1; id <= 250; id++) {
+      createRefs(String.format("refs/changes/%02d/%d/meta", id % 100, id));
+      expected.add(Change.id(id));
+    }
+
+    List<Change.Id> enumerated = new ArrayList<>();
+    for (int shard = 0; shard < DatabaseDeleteHandler.CHANGE_SHARDS; shard++) {
+      enumerated.addAll(DatabaseDeleteHandler.getChangeIdsOfShard(repo, shard));
+    }
+    assertThat(enumerated).containsExactlyElementsIn(expected);
+  }
+
+  @Test
+  public void shouldRemoveWatchesWithOneBatchUpdatePerPage() throws Exception {
+    when(config.getWatchBatchSize()).thenReturn(2);
+    List<AccountState> watchers = watchers(1, 2, 3);
+    when(accountQuery.byWatchedProject(PROJECT.getNameKey()))
+        .thenReturn(watchers.subList(0, 2), watchers.subList(2, 3), ImmutableList.of());
+
+    assertThat(handler.deleteProjectWatches(PROJECT)).isEqualTo(3);
+
+    InOrder inOrder = Mockito.inOrder(accountsUpdate);
+    inOrder.verify(accountsUpdate).updateBatch(argThat(hasAccounts(1, 2)));
+    inOrder.verify(accountsUpdate).updateBatch(argThat(hasAccounts(3)));
+    verify(accountQuery, times(3)).setStart(0);
+    verify(allUsersCompactor).recordChurn(3);
+  }
+
+  @Test
+  public void shouldStartNextPageAfterAccountsWhichStillMatch() throws Exception {
+    when(config.getWatchBatchSize()).thenReturn(2);
+    List<AccountState> watchers = watchers(1, 2, 3);
+    when(accountQuery.byWatchedProject(PROJECT.getNameKey()))
+        .thenReturn(watchers.subList(0, 2), watchers.subList(0, 2), ImmutableList.of());
+
+    assertThat(handler.deleteProjectWatches(PROJECT)).isEqualTo(2);
+
+    verify(accountsUpdate).updateBatch(argThat(hasAccounts(1, 2)));
+    verify(accountQuery).setStart(2);
+  }
+
+  @Test
+  public void shouldRetryOneByOneAndReportAccountsWhoseWatchesCouldNotBeRemoved()
+      throws Exception {
+    when(config.getWatchBatchSize()).thenReturn(2);
+    List<AccountState> watchers = watchers(1, 2);
+    when(accountQuery.byWatchedProject(PROJECT.getNameKey()))
+        .thenReturn(watchers, watchers.subList(1, 2), ImmutableList.of());
+    when(accountsUpdate.updateBatch(any())).thenThrow(new IOException("batch failed"));
+    when(accountsUpdate.update(any(), eq(Account.id(1)), any(ConfigureStatelessDelta.class)))
+        .thenReturn(Optional.empty());
+    when(accountsUpdate.update(any(), eq(Account.id(2)), any(ConfigureStatelessDelta.class)))
+        .thenThrow(new IOException("account failed"));
+
+    IOException e = assertThrows(IOException.class, () -> handler.deleteProjectWatches(PROJECT));
+
+    assertThat(e).hasMessageThat().contains(Account.id(2).toString());
+    verify(accountQuery).setStart(1);
+    verify(accountQuery).setStart(2);
+  }
+
+  private List<AccountState> watchers(int... ids) {
+    when(accountQuery.setStart(anyInt())).thenReturn(accountQuery);
+    when(accountQuery.setLimit(anyInt())).thenReturn(accountQuery);
+    List<AccountState> accounts = new ArrayList<>();
+    for (Account.Id id : ids(ids)) {
+      AccountState a = mock(AccountState.class);
+      when(a.account()).thenReturn(Account.builder(id, Instant.EPOCH).build());
+      when(a.projectWatches())
+          .thenReturn(
+              ImmutableMap.of(
+                  ProjectWatchKey.create(PROJECT.getNameKey(), null),
+                  ImmutableSet.of(NotifyType.ALL_COMMENTS)));
+      accounts.add(a);
+    }
+    return accounts;
+  }
+
+  private static ArgumentMatcher<List<AccountsUpdate.UpdateArguments>> hasAccounts(int... ids) {
+    return updates -> updates.stream().map(u -> u.accountId).collect(toList()).equals(ids(ids));
+  }
+
+  private static ImmutableList<Account.Id> ids(int... ids) {
+    ImmutableList.Builder<Account.Id> accountIds = ImmutableList.builder();
+    for (int id : ids) {
+      accountIds.add(Account.id(id));
+    }
+    return accountIds.build();
+  }
+
+  private void createRefs(String... names) throws Exception {
+    for (String name : names) {
+      testRepo.update(name, commit);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.events.NewProjectCreatedListener;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.index.change.ChangeIndexer;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.query.change.InternalChangeQuery;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import com.googlesource.gerrit.plugins.deleteproject.FakeScheduledExecutorService;
+import java.io.File;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IndexPurgerTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("deleted");
+
+  @Mock private ChangeIndexer indexer;
+  @Mock private WorkQueue workQueue;
+  @Mock private Configuration cfg;
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private InternalChangeQuery query;
+  private File pluginData;
+
+  @Before
+  public void setUp() throws Exception {
+    query = mock(InternalChangeQuery.class, RETURNS_SELF);
+    pluginData = tempFolder.newFolder("data");
+    when(cfg.getIndexPurgeBatchSize()).thenReturn(2);
+  }
+
+  @Test
+  public void shouldPurgeChangesPageByPage() {
+    ChangeData c1 = change(1);
+    ChangeData c2 = change(2);
+    ChangeData c3 = change(3);
+    when(query.byProject(PROJECT))
+        .thenReturn(ImmutableList.of(c1, c2), ImmutableList.of(c3), ImmutableList.of());
+
+    IndexPurger purger = newPurger();
+    purger.tombstone(PROJECT);
+
+    verify(query).setLimit(2);
+    verify(indexer).delete(Change.id(1));
+    verify(indexer).delete(Change.id(2));
+    verify(indexer).delete(Change.id(3));
+    verify(indexer).deleteAllForProject(PROJECT);
+    assertThat(purger.isTombstoned(PROJECT)).isFalse();
+  }
+
+  @Test
+  public void shouldResumeFailedPurgeAfterRestart() {
+    when(query.byProject(PROJECT)).thenThrow(new StorageException("index unavailable"));
+    newPurger().tombstone(PROJECT);
+
+    when(query.byProject(PROJECT)).thenReturn(ImmutableList.of());
+    when(workQueue.createQueue(anyInt(), anyString()))
+        .thenReturn(new FakeScheduledExecutorService());
+    IndexPurger restarted = newPurger();
+    restarted.start();
+    try {
+      assertThat(restarted.isTombstoned(PROJECT)).isFalse();
+      verify(indexer).deleteAllForProject(PROJECT);
+    } finally {
+      restarted.stop();
+    }
+  }
+
+  @Test
+  public void shouldPurgeInlineWhenProjectIsRecreated() {
+    when(query.byProject(PROJECT)).thenThrow(new StorageException("index unavailable"));
+    IndexPurger purger = newPurger();
+    purger.tombstone(PROJECT);
+    verify(indexer, never()).deleteAllForProject(PROJECT);
+
+    NewProjectCreatedListener.Event event = mock(NewProjectCreatedListener.Event.class);
+    when(event.getProjectName()).thenReturn(PROJECT.get());
+    purger.onNewProjectCreated(event);
+
+    verify(indexer).deleteAllForProject(PROJECT);
+    assertThat(purger.isTombstoned(PROJECT)).isFalse();
+  }
+
+  @Test
+  public void shouldStopPurgeOnceCancelled() {
+    ChangeData c1 = change(1);
+    ChangeData c2 = change(2);
+    when(query.byProject(PROJECT)).thenReturn(ImmutableList.of(c1, c2));
+    IndexPurger purger = newPurger();
+    doAnswer(
+            invocation -> {
+              purger.cancel(PROJECT);
+              return null;
+            })
+        .when(indexer)
+        .delete(Change.id(1));
+
+    purger.tombstone(PROJECT);
+
+    verify(indexer, never()).delete(Change.id(2));
+    verify(indexer, never()).deleteAllForProject(PROJECT);
+    assertThat(purger.isTombstoned(PROJECT)).isFalse();
+  }
+
+  private IndexPurger newPurger() {
+    DisabledMetricMaker metricMaker = new DisabledMetricMaker();
+    return new IndexPurger(
+        () -> query,
+        indexer,
+        workQueue,
+        cfg,
+        new DeletionMetrics(metricMaker),
+        metricMaker,
+        pluginData);
+  }
+
+  private static ChangeData change(int id) {
+    ChangeData cd = mock(ChangeData.class);
+    when(cd.getId()).thenReturn(Change.id(id));
+    return cd;
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StarredChangesRemoverTest {
+  private static final AllUsersName ALL_USERS = new AllUsersName("All-Users");
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final Account.Id ACCOUNT_1 = Account.id(1000001);
+  private static final Account.Id ACCOUNT_2 = Account.id(1000002);
+
+  @Mock private GitRepositoryManager repoManager;
+  @Mock private GitReferenceUpdated gitRefUpdated;
+
+  private InMemoryRepository allUsers;
+  private TestRepository<InMemoryRepository> testRepo;
+  private StarredChangesRemover remover;
+
+  @Before
+  public void setUp() throws Exception {
+    allUsers = new InMemoryRepository(new DfsRepositoryDescription(ALL_USERS.get()));
+    testRepo = new TestRepository<>(allUsers);
+    when(repoManager.openRepository(ALL_USERS))
+        .thenAnswer(
+            i -> {
+              allUsers.incrementOpen();
+              return allUsers;
+            });
+    remover =
+        new StarredChangesRemover(
+            repoManager,
+            ALL_USERS,
+            new AllUsersRefsDeleter(
+                repoManager,
+                ALL_USERS,
+                () -> new PersonIdent("Gerrit Server", "noreply@gerrit.com"),
+                gitRefUpdated),
+            new DeletionMetrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void shouldDeleteStarsOfGivenChangesInBatches() throws Exception {
+    star(Change.id(1), ACCOUNT_1);
+    star(Change.id(1), ACCOUNT_2);
+    star(Change.id(2), ACCOUNT_1);
+    star(Change.id(3), ACCOUNT_2);
+
+    int removed =
+        remover.unstar(PROJECT, ImmutableList.of(Change.id(1), Change.id(2), Change.id(4)), 2);
+
+    assertThat(removed).isEqualTo(3);
+    assertThat(allUsers.getRefDatabase().getRefsByPrefix(RefNames.REFS_STARRED_CHANGES))
+        .hasSize(1);
+    assertThat(allUsers.exactRef(RefNames.refsStarredChanges(Change.id(3), ACCOUNT_2)))
+        .isNotNull();
+  }
+
+  @Test
+  public void shouldCountOnlyStarredChangesAsUnstarred() throws Exception {
+    star(Change.id(1), ACCOUNT_1);
+    star(Change.id(1), ACCOUNT_2);
+    star(Change.id(3), ACCOUNT_2);
+
+    try (StarredChangesRemover.Session session = remover.open(PROJECT, 10)) {
+      session.unstar(ImmutableList.of(Change.id(1), Change.id(2)));
+      session.flush();
+
+      assertThat(session.getUnstarred()).isEqualTo(1);
+      assertThat(session.getRemoved()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void shouldNotCountChangesWhoseStarsCouldNotBeDeleted() throws Exception {
+    star(Change.id(1), ACCOUNT_1);
+    star(Change.id(2), ACCOUNT_1);
+
+    try (StarredChangesRemover.Session session = remover.open(PROJECT, 10)) {
+      session.unstar(ImmutableList.of(Change.id(1), Change.id(2)));
+      star(Change.id(2), ACCOUNT_1, "restar\n");
+      session.flush();
+
+      assertThat(session.getUnstarred()).isEqualTo(1);
+      assertThat(session.getRemoved()).isEqualTo(1);
+    }
+    assertThat(allUsers.exactRef(RefNames.refsStarredChanges(Change.id(2), ACCOUNT_1)))
+        .isNotNull();
+  }
+
+  @Test
+  public void shouldFireRefUpdatedEventForEveryBatch() throws Exception {
+    star(Change.id(1), ACCOUNT_1);
+    star(Change.id(1), ACCOUNT_2);
+    star(Change.id(2), ACCOUNT_1);
+
+    remover.unstar(PROJECT, ImmutableList.of(Change.id(1), Change.id(2)), 2);
+
+    verify(gitRefUpdated, times(2)).fire(eq(ALL_USERS), any(BatchRefUpdate.class), isNull());
+  }
+
+  private void star(Change.Id changeId, Account.Id accountId) throws Exception {
+    star(changeId, accountId, "star\n");
+  }
+
+  private void star(Change.Id changeId, Account.Id accountId, String labels) throws Exception {
+    RevBlob blob = testRepo.blob(labels);
+    testRepo.update(RefNames.refsStarredChanges(changeId, accountId), blob);
+  }
+}
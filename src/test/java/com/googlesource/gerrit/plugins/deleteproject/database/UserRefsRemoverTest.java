@@ -0,0 +1,102 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.database;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserRefsRemoverTest {
+  private static final AllUsersName ALL_USERS = new AllUsersName("All-Users");
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final Account.Id ACCOUNT_1 = Account.id(1000001);
+  private static final Account.Id ACCOUNT_2 = Account.id(1000002);
+
+  @Mock private GitRepositoryManager repoManager;
+
+  private InMemoryRepository allUsers;
+  private TestRepository<InMemoryRepository> testRepo;
+  private UserRefsRemover remover;
+
+  @Before
+  public void setUp() throws Exception {
+    allUsers = new InMemoryRepository(new DfsRepositoryDescription(ALL_USERS.get()));
+    testRepo = new TestRepository<>(allUsers);
+    when(repoManager.openRepository(ALL_USERS))
+        .thenAnswer(
+            i -> {
+              allUsers.incrementOpen();
+              return allUsers;
+            });
+    remover =
+        new UserRefsRemover(
+            repoManager,
+            ALL_USERS,
+            new AllUsersRefsDeleter(
+                repoManager,
+                ALL_USERS,
+                () -> new PersonIdent("Gerrit Server", "noreply@gerrit.com"),
+                GitReferenceUpdated.DISABLED),
+            new DeletionMetrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void shouldDeleteDraftCommentsOfGivenChangesInBatches() throws Exception {
+    draft(Change.id(1), ACCOUNT_1);
+    draft(Change.id(1), ACCOUNT_2);
+    draft(Change.id(2), ACCOUNT_1);
+    draft(Change.id(3), ACCOUNT_2);
+
+    int removed;
+    try (UserRefsRemover.Session session = remover.open(PROJECT, 2)) {
+      session.purge(ImmutableList.of(Change.id(1), Change.id(2)));
+      session.purge(ImmutableList.of(Change.id(4)));
+      session.flush();
+      removed = session.getRemoved();
+    }
+
+    assertThat(removed).isEqualTo(3);
+    assertThat(allUsers.getRefDatabase().getRefsByPrefix(RefNames.REFS_DRAFT_COMMENTS))
+        .hasSize(1);
+    assertThat(allUsers.exactRef(RefNames.refsDraftComments(Change.id(3), ACCOUNT_2)))
+        .isNotNull();
+  }
+
+  private void draft(Change.Id changeId, Account.Id accountId) throws Exception {
+    RevCommit commit = testRepo.commit().create();
+    testRepo.update(RefNames.refsDraftComments(changeId, accountId), commit);
+  }
+}
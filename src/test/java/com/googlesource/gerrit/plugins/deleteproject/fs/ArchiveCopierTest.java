@@ -0,0 +1,95 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.server.git.WorkQueue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveCopierTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldCopyTree() throws Exception {
+    Path source = createRepo();
+    Path target = tempFolder.getRoot().toPath().resolve("archive/repo.git");
+
+    ArchiveCopier.SEQUENTIAL.copy(source, target);
+
+    assertCopied(source, target);
+  }
+
+  @Test
+  public void shouldCopyTreeInParallel() throws Exception {
+    Path source = createRepo();
+    Path target = tempFolder.getRoot().toPath().resolve("archive/repo.git");
+    WorkQueue workQueue = mock(WorkQueue.class);
+    when(workQueue.createQueue(4, "DeleteProject-ArchiveCopy"))
+        .thenReturn(Executors.newScheduledThreadPool(4));
+    ArchiveCopier copier = new ArchiveCopier(workQueue, 4);
+    copier.start();
+    try {
+      copier.copy(source, target);
+    } finally {
+      copier.stop();
+    }
+
+    assertCopied(source, target);
+  }
+
+  @Test
+  public void shouldFailWithIOExceptionOnceStopped() throws Exception {
+    Path source = createRepo();
+    Path target = tempFolder.getRoot().toPath().resolve("archive/repo.git");
+    WorkQueue workQueue = mock(WorkQueue.class);
+    when(workQueue.createQueue(4, "DeleteProject-ArchiveCopy"))
+        .thenReturn(Executors.newScheduledThreadPool(4));
+    ArchiveCopier copier = new ArchiveCopier(workQueue, 4);
+    copier.start();
+    copier.stop();
+
+    assertThrows(IOException.class, () -> copier.copy(source, target));
+  }
+
+  private Path createRepo() throws Exception {
+    Path root = tempFolder.newFolder("repo.git").toPath();
+    Files.write(root.resolve("packed-refs"), "abc".getBytes(UTF_8));
+    Path pack = Files.createDirectories(root.resolve("objects/pack"));
+    Files.write(pack.resolve("pack-1.pack"), new byte[100_000]);
+    Files.write(pack.resolve("pack-1.idx"), "idx".getBytes(UTF_8));
+    Files.createDirectories(root.resolve("refs/heads"));
+    return root;
+  }
+
+  private static void assertCopied(Path source, Path target) throws Exception {
+    assertThat(Files.readAllBytes(target.resolve("packed-refs")))
+        .isEqualTo(Files.readAllBytes(source.resolve("packed-refs")));
+    assertThat(Files.size(target.resolve("objects/pack/pack-1.pack"))).isEqualTo(100_000);
+    assertThat(Files.readAllBytes(target.resolve("objects/pack/pack-1.idx")))
+        .isEqualTo(Files.readAllBytes(source.resolve("objects/pack/pack-1.idx")));
+    assertThat(Files.isDirectory(target.resolve("refs/heads"))).isTrue();
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.git.WorkQueue;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ArchiveDeduplicatorTest {
+  @Mock private WorkQueue workQueue;
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path archiveFolder;
+  private Path repo;
+  private Path fork;
+  private ArchiveDeduplicator deduplicator;
+
+  @Before
+  public void setUp() throws Exception {
+    archiveFolder = tempFolder.newFolder("archive").toPath();
+    repo = createArchivedRepo("repo.git");
+    fork = createArchivedRepo("fork.git");
+    deduplicator =
+        new ArchiveDeduplicator(workQueue, new DeletionMetrics(new DisabledMetricMaker()));
+  }
+
+  @Test
+  public void shouldDeduplicateInBackground() throws Exception {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(workQueue.createQueue(anyInt(), anyString())).thenReturn(executor);
+    deduplicator.start();
+    deduplicator.deduplicate(archiveFolder, repo);
+    deduplicator.deduplicate(archiveFolder, fork);
+    ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).submit(tasks.capture());
+
+    assertThat(Files.exists(archiveFolder.resolve(ArchivePackStore.FOLDER_NAME))).isFalse();
+    tasks.getAllValues().forEach(Runnable::run);
+
+    assertThat(Files.isSameFile(pack(repo), pack(fork))).isTrue();
+  }
+
+  @Test
+  public void shouldDeduplicateInlineWhenNotStarted() throws Exception {
+    deduplicator.deduplicate(archiveFolder, repo);
+    deduplicator.deduplicate(archiveFolder, fork);
+
+    assertThat(Files.isSameFile(pack(repo), pack(fork))).isTrue();
+  }
+
+  @Test
+  public void shouldProbeHardLinksWithoutLeavingFiles() throws Exception {
+    assertThat(ArchiveDeduplicator.supportsHardLinks(archiveFolder)).isTrue();
+    assertThat(archiveFolder.toFile().list()).asList().containsExactly("repo.git", "fork.git");
+  }
+
+  private Path createArchivedRepo(String name) throws Exception {
+    Path archive = archiveFolder.resolve(name);
+    Path packDir = Files.createDirectories(archive.resolve("objects/pack"));
+    Files.write(packDir.resolve("pack-1.pack"), "shared".getBytes(UTF_8));
+    return archive;
+  }
+
+  private static Path pack(Path archive) {
+    return archive.resolve("objects/pack/pack-1.pack");
+  }
+}
@@ -0,0 +1,132 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveManifestTest {
+  private static final Instant T1 = Instant.parse("2026-01-01T00:00:00Z");
+  private static final Instant T2 = Instant.parse("2026-01-02T00:00:00Z");
+  private static final Instant T3 = Instant.parse("2026-01-03T00:00:00Z");
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path archiveFolder;
+  private ArchiveManifest manifest;
+
+  @Before
+  public void setUp() throws Exception {
+    archiveFolder = tempFolder.newFolder("archive").toPath();
+    manifest = new ArchiveManifest(archiveFolder);
+  }
+
+  @Test
+  public void shouldReturnRepositoriesArchivedBeforeTimeOldestFirst() throws Exception {
+    append("b", T2);
+    append("a", T1);
+    append("c", T3);
+
+    assertThat(projects(manifest.archivedBefore(T3))).containsExactly("a", "b").inOrder();
+    assertThat(manifest.archivedBefore(T1)).isEmpty();
+  }
+
+  @Test
+  public void shouldReadRepositoriesAppendedSinceLastRead() throws Exception {
+    append("a", T1);
+    assertThat(projects(manifest.archivedBefore(T3))).containsExactly("a");
+
+    append("b", T2);
+    assertThat(projects(manifest.archivedBefore(T3))).containsExactly("a", "b").inOrder();
+  }
+
+  @Test
+  public void shouldRecordArchivedRepository() throws Exception {
+    Path archive = archiveFolder.resolve("parent/a.20260101000000.%archived%.git");
+    ArchiveManifest.append(archiveFolder, "parent/a", archive, T1, 42);
+
+    ArchiveManifest.Entry entry = manifest.archivedBefore(T2).get(0);
+    assertThat(entry.project).isEqualTo("parent/a");
+    assertThat(entry.size).isEqualTo(42);
+    assertThat(entry.archivedAt).isEqualTo(T1);
+    assertThat(manifest.resolve(entry)).isEqualTo(archive);
+  }
+
+  @Test
+  public void shouldRecordArchivedRepositoryOfRelativeArchiveFolder() throws Exception {
+    Path relativeArchiveFolder = Path.of("").toAbsolutePath().relativize(archiveFolder);
+    Path archive = archiveFolder.resolve("parent/a.20260101000000.%archived%.git");
+    ArchiveManifest.append(relativeArchiveFolder, "parent/a", archive, T1, 42);
+
+    assertThat(manifest.resolve(manifest.archivedBefore(T2).get(0))).isEqualTo(archive);
+  }
+
+  @Test
+  public void shouldRewriteManifestWithoutRemovedRepositories() throws Exception {
+    append("a", T1);
+    append("b", T2);
+
+    manifest.remove(manifest.archivedBefore(T2));
+    append("c", T2);
+
+    assertThat(projects(manifest.archivedBefore(T3))).containsExactly("b", "c").inOrder();
+    assertThat(projects(new ArchiveManifest(archiveFolder).archivedBefore(T3)))
+        .containsExactly("b", "c")
+        .inOrder();
+  }
+
+  @Test
+  public void shouldScanRepositoriesArchivedBeforeManifestOnce() throws Exception {
+    Path legacy =
+        Files.createDirectories(archiveFolder.resolve("parent/a.20250101000000.%archived%.git"));
+    Files.createDirectories(legacy.resolve("objects"));
+    Files.setLastModifiedTime(legacy, FileTime.from(T1));
+    Files.createDirectories(archiveFolder.resolve(ArchivePackStore.FOLDER_NAME));
+    Files.createDirectories(archiveFolder.resolve("unrelated"));
+    append("b", T2);
+
+    ImmutableList<ArchiveManifest.Entry> entries = manifest.archivedBefore(T3);
+    assertThat(projects(entries)).containsExactly("parent/a", "b").inOrder();
+    assertThat(manifest.resolve(entries.get(0))).isEqualTo(legacy);
+
+    Files.createDirectories(archiveFolder.resolve("c.20250101000000.%archived%.git"));
+    assertThat(projects(new ArchiveManifest(archiveFolder).archivedBefore(T3)))
+        .containsExactly("parent/a", "b")
+        .inOrder();
+  }
+
+  private void append(String project, Instant archivedAt) throws Exception {
+    ArchiveManifest.append(
+        archiveFolder,
+        project,
+        archiveFolder.resolve(project + ".20260101000000.%archived%.git"),
+        archivedAt,
+        0);
+  }
+
+  private static ImmutableList<String> projects(ImmutableList<ArchiveManifest.Entry> entries) {
+    return entries.stream().map(e -> e.project).collect(toImmutableList());
+  }
+}
@@ -0,0 +1,104 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchivePackStoreTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path archiveFolder;
+  private ArchivePackStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    archiveFolder = tempFolder.newFolder("archive").toPath();
+    store = new ArchivePackStore(archiveFolder);
+  }
+
+  @Test
+  public void shouldStoreSharedPacksOnce() throws Exception {
+    Path repo = createArchivedRepo("repo.git", "shared", "repo");
+    Path fork = createArchivedRepo("fork.git", "shared", "fork");
+
+    assertThat(store.deduplicate(repo)).isEqualTo(0);
+    assertThat(store.deduplicate(fork)).isEqualTo("shared".length());
+
+    assertThat(Files.isSameFile(pack(repo, "pack-1.pack"), pack(fork, "pack-1.pack"))).isTrue();
+    assertThat(Files.isSameFile(pack(repo, "pack-2.pack"), pack(fork, "pack-2.pack"))).isFalse();
+    assertThat(new String(Files.readAllBytes(pack(fork, "pack-1.pack")), UTF_8))
+        .isEqualTo("shared");
+  }
+
+  @Test
+  public void shouldDeletePacksOnceNoLongerReferenced() throws Exception {
+    Path repo = createArchivedRepo("repo.git", "shared", "repo");
+    Path fork = createArchivedRepo("fork.git", "shared", "fork");
+    store.deduplicate(repo);
+    store.deduplicate(fork);
+
+    MoreFiles.deleteRecursively(repo, RecursiveDeleteOption.ALLOW_INSECURE);
+    FileTreeDelete.Freed freed = store.collect();
+    assertThat(freed.files).isEqualTo(1);
+    assertThat(freed.bytes).isEqualTo("repo".length());
+    assertThat(new String(Files.readAllBytes(pack(fork, "pack-1.pack")), UTF_8))
+        .isEqualTo("shared");
+
+    MoreFiles.deleteRecursively(fork, RecursiveDeleteOption.ALLOW_INSECURE);
+    freed = store.collect();
+    assertThat(freed.files).isEqualTo(2);
+    assertThat(archiveFolder.resolve(ArchivePackStore.FOLDER_NAME).toFile().list()).isEmpty();
+  }
+
+  @Test
+  public void shouldDetachRepositoryFromStore() throws Exception {
+    Path repo = createArchivedRepo("repo.git", "shared", "repo");
+    Path fork = createArchivedRepo("fork.git", "shared", "fork");
+    store.deduplicate(repo);
+    store.deduplicate(fork);
+
+    ArchivePackStore.detach(repo);
+
+    assertThat(Files.isSameFile(pack(repo, "pack-1.pack"), pack(fork, "pack-1.pack"))).isFalse();
+    assertThat(Files.getAttribute(pack(repo, "pack-1.pack"), "unix:nlink")).isEqualTo(1);
+    assertThat(new String(Files.readAllBytes(pack(repo, "pack-1.pack")), UTF_8))
+        .isEqualTo("shared");
+    assertThat(new String(Files.readAllBytes(pack(fork, "pack-1.pack")), UTF_8))
+        .isEqualTo("shared");
+  }
+
+  private Path createArchivedRepo(String name, String sharedPack, String ownPack)
+      throws Exception {
+    Path repo = archiveFolder.resolve(name);
+    Path packDir = Files.createDirectories(repo.resolve("objects/pack"));
+    Files.write(packDir.resolve("pack-1.pack"), sharedPack.getBytes(UTF_8));
+    Files.write(packDir.resolve("pack-2.pack"), ownPack.getBytes(UTF_8));
+    return repo;
+  }
+
+  private static Path pack(Path repo, String name) {
+    return repo.resolve("objects/pack").resolve(name);
+  }
+}
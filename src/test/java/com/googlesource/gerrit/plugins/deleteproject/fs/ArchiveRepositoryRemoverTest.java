@@ -76,7 +76,9 @@ public class ArchiveRepositoryRemoverTest {
     fakeScheduledExecutor = new FakeScheduledExecutorService();
     when(workQueueMock.getDefaultQueue()).thenReturn(fakeScheduledExecutor);
 
-    remover = new ArchiveRepositoryRemover(workQueueMock, configMock, PLUGIN_NAME);
+    remover =
+        new ArchiveRepositoryRemover(
+            workQueueMock, configMock, PLUGIN_NAME, DeletionPool.SEQUENTIAL);
   }
 
   @Test
@@ -112,7 +114,8 @@ public class ArchiveRepositoryRemoverTest {
         initialDateTimeFormatted, String.format("%d milliseconds", INTERVAL_MILLIS));
 
     ArchiveRepositoryRemover remover =
-        new ArchiveRepositoryRemover(workQueueMock, configMock, PLUGIN_NAME);
+        new ArchiveRepositoryRemover(
+            workQueueMock, configMock, PLUGIN_NAME, DeletionPool.SEQUENTIAL);
 
     remover.start();
     try {
@@ -146,7 +149,7 @@ public class ArchiveRepositoryRemoverTest {
 
   private void setupArchiveFolder() throws IOException {
     for (int i = 0; i < NUMBER_OF_REPOS; i++) {
-      createRepository("Repo_" + i);
+      createRepository("Repo_" + i + ".20260101000000.%archived%.git");
     }
     assertDirectoryContents(archiveRepo, false);
   }
@@ -160,7 +163,10 @@ public class ArchiveRepositoryRemoverTest {
 
   private void assertDirectoryContents(Path dir, boolean expectEmpty) throws IOException {
     try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
-      List<Path> paths = StreamSupport.stream(dirStream.spliterator(), false).collect(toList());
+      List<Path> paths =
+          StreamSupport.stream(dirStream.spliterator(), false)
+              .filter(p -> !p.getFileName().toString().equals(ArchiveManifest.FILE_NAME))
+              .collect(toList());
       if (expectEmpty && !paths.isEmpty()) {
         fail(
             String.format(
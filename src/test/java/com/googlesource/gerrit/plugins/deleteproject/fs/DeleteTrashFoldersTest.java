@@ -82,7 +82,13 @@ public class DeleteTrashFoldersTest {
     when(pluginCfg.getTrashFolderName()).thenReturn("some-trash-folder");
     trashFolders =
         new DeleteTrashFolders(
-            sitePaths, cfg, repositoryCfg, pluginCfg, workQueue, DELETE_PROJECT_PLUGIN);
+            sitePaths,
+            cfg,
+            repositoryCfg,
+            pluginCfg,
+            workQueue,
+            DELETE_PROJECT_PLUGIN,
+            DeletionPool.SEQUENTIAL);
   }
 
   @Test
@@ -95,7 +101,13 @@ public class DeleteTrashFoldersTest {
 
     DeleteTrashFolders trashFolders =
         new DeleteTrashFolders(
-            sitePaths, cfg, repositoryCfg, pluginCfg, workQueue, DELETE_PROJECT_PLUGIN);
+            sitePaths,
+            cfg,
+            repositoryCfg,
+            pluginCfg,
+            workQueue,
+            DELETE_PROJECT_PLUGIN,
+            DeletionPool.SEQUENTIAL);
     trashFolders.start();
 
     try (FileRepository repoToDelete = createRepositoryToDelete(REPOSITORY_TO_DELETE)) {
@@ -170,7 +182,13 @@ public class DeleteTrashFoldersTest {
 
     DeleteTrashFolders deleteTrashFolders =
         new DeleteTrashFolders(
-            sitePaths, cfg, repositoryCfg, pluginCfg, workQueue, DELETE_PROJECT_PLUGIN);
+            sitePaths,
+            cfg,
+            repositoryCfg,
+            pluginCfg,
+            workQueue,
+            DELETE_PROJECT_PLUGIN,
+            DeletionPool.SEQUENTIAL);
 
     for (int i = 0; i < 10; i++) {
       Path trash = basePath.resolve(String.format("repo.%013d.deleted", i));
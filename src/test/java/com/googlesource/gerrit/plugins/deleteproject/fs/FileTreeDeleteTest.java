@@ -0,0 +1,68 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileTreeDeleteTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldDeleteTreeAndCountFreedStorage() throws Exception {
+    Path root = tempFolder.newFolder("repo.git").toPath();
+    Files.write(root.resolve("packed-refs"), "abc".getBytes(UTF_8));
+    Path pack = Files.createDirectories(root.resolve("objects/pack"));
+    Files.write(pack.resolve("pack-1.pack"), new byte[100]);
+    Files.createDirectories(root.resolve("refs/heads"));
+
+    FileTreeDelete.Freed freed = FileTreeDelete.delete(root);
+
+    assertThat(Files.exists(root)).isFalse();
+    assertThat(freed.files).isEqualTo(2);
+    assertThat(freed.bytes).isEqualTo(103);
+  }
+
+  @Test
+  public void shouldDeleteTreeInParallel() throws Exception {
+    Path root = tempFolder.newFolder("repo.git").toPath();
+    for (int i = 0; i < 16; i++) {
+      Path fanout = Files.createDirectories(root.resolve(String.format("objects/%02x", i)));
+      for (int j = 0; j < 4; j++) {
+        Files.write(fanout.resolve("object-" + j), new byte[10]);
+      }
+    }
+    Files.createDirectories(root.resolve("refs/heads"));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    FileTreeDelete.Freed freed;
+    try {
+      freed = FileTreeDelete.delete(root, pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    assertThat(Files.exists(root)).isFalse();
+    assertThat(freed.files).isEqualTo(64);
+    assertThat(freed.bytes).isEqualTo(640);
+  }
+}
@@ -17,6 +17,7 @@ package com.googlesource.gerrit.plugins.deleteproject.fs;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.server.git.GitRepositoryManager;
 import com.googlesource.gerrit.plugins.deleteproject.Configuration;
 import java.nio.file.Path;
 import java.util.Optional;
@@ -35,6 +36,7 @@ public class FilesystemDeleteHandlerTest {
   @Mock private RepositoryDelete repositoryDelete;
   @Mock private ProjectDeletedListener projectDeleteListener;
   @Mock private Configuration config;
+  @Mock private GitRepositoryManager repoManager;
 
   @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
 
@@ -58,7 +60,7 @@ public class FilesystemDeleteHandlerTest {
     Mockito.when(config.getArchiveFolder()).thenReturn(basePath);
 
     FilesystemDeleteHandler filesystemDeleteHandler =
-        new FilesystemDeleteHandler(repositoryDelete, deletedListeners, config);
+        new FilesystemDeleteHandler(repositoryDelete, deletedListeners, config, repoManager);
     filesystemDeleteHandler.delete(project, noPreserveGitRepository);
     Mockito.verify(repositoryDelete)
         .execute(
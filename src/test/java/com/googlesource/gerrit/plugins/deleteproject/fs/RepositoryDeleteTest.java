@@ -19,6 +19,7 @@ package com.googlesource.gerrit.plugins.deleteproject.fs;
 import static com.google.common.truth.Truth.assertThat;
 import static com.googlesource.gerrit.plugins.deleteproject.Configuration.DEFAULT_TRASH_FOLDER_NAME;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 
@@ -26,8 +27,11 @@ import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.events.ProjectDeletedListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.extensions.registration.RegistrationHandle;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.server.git.GitRepositoryManager;
 import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration.ArchiveFormat;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -36,12 +40,14 @@ import java.nio.file.PathMatcher;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.lib.Repository;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -54,9 +60,13 @@ public class RepositoryDeleteTest {
   @Mock private GitRepositoryManager repoManager;
   @Mock private ProjectDeletedListener projectDeleteListener;
   @Mock private Configuration configMock;
+  @Mock private TrashReaper trashReaper;
 
   @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
 
+  private final DeletionMetrics metrics = new DeletionMetrics(new DisabledMetricMaker());
+  private final ArchiveDeduplicator archiveDeduplicator = new ArchiveDeduplicator(null, metrics);
+
   private DynamicSet<ProjectDeletedListener> deletedListeners;
   private RegistrationHandle handle;
   private RepositoryDelete repositoryDelete;
@@ -72,6 +82,26 @@ public class RepositoryDeleteTest {
 
   @Test
   public void shouldDeleteRepository() throws Exception {
+    String repoName = "testRepo";
+    Repository repository = createRepository(repoName);
+    Project.NameKey nameKey = Project.nameKey(repoName);
+    when(repoManager.openRepository(nameKey)).thenReturn(repository);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
+    repositoryDelete.execute(nameKey);
+    assertThat(repository.getDirectory().exists()).isFalse();
+  }
+
+  @Test
+  public void shouldDeleteRepositoryInlineWithoutTrashReaper() throws Exception {
+    when(configMock.deferRepositoryDeletion()).thenReturn(true);
     String repoName = "testRepo";
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
@@ -79,6 +109,7 @@ public class RepositoryDeleteTest {
     repositoryDelete = new RepositoryDelete(repoManager, configMock);
     repositoryDelete.execute(nameKey);
     assertThat(repository.getDirectory().exists()).isFalse();
+    assertThat(basePath.resolve(DEFAULT_TRASH_FOLDER_NAME).toFile().list()).isEmpty();
   }
 
   @Test
@@ -88,7 +119,15 @@ public class RepositoryDeleteTest {
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey);
     assertThat(repository.getDirectory().exists()).isFalse();
   }
@@ -99,7 +138,15 @@ public class RepositoryDeleteTest {
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey);
     assertThat(repository.getDirectory().exists()).isFalse();
   }
@@ -114,19 +161,60 @@ public class RepositoryDeleteTest {
 
     Project.NameKey nameKey = Project.nameKey(repoToDeleteName);
     when(repoManager.openRepository(nameKey)).thenReturn(repoToDelete);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey);
     assertThat(repoToDelete.getDirectory().exists()).isFalse();
     assertThat(repoToKeep.getDirectory().exists()).isTrue();
   }
 
+  @Test
+  public void shouldDeferDeletionOfTrashFolder() throws Exception {
+    when(configMock.deferRepositoryDeletion()).thenReturn(true);
+    String repoName = "a/b/c";
+    Repository repository = createRepository(repoName);
+    Project.NameKey nameKey = Project.nameKey(repoName);
+    when(repoManager.openRepository(nameKey)).thenReturn(repository);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
+    repositoryDelete.execute(nameKey);
+    assertThat(repository.getDirectory().exists()).isFalse();
+
+    ArgumentCaptor<Path> trash = ArgumentCaptor.forClass(Path.class);
+    Mockito.verify(trashReaper).reap(trash.capture(), eq(basePath));
+    assertThat(Files.isDirectory(trash.getValue())).isTrue();
+    assertThat(DeleteTrashFolders.TrashFolderPredicate.match(trash.getValue())).isTrue();
+  }
+
   @Test
   public void shouldPreserveRepository() throws Exception {
     String repoName = "preservedRepo";
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey, true, false, NO_ARCHIVE_PATH, deletedListeners);
     assertThat(repository.getDirectory().exists()).isTrue();
   }
@@ -145,11 +233,49 @@ public class RepositoryDeleteTest {
     Path archiveFolder = basePath.resolve("test_archive");
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey, false, true, Optional.of(archiveFolder), deletedListeners);
     assertThat(repository.getDirectory().exists()).isFalse();
     String patternToVerify = archiveFolder.resolve(repoName).toString() + "*%archived%.git";
     assertThat(pathExistsWithPattern(archiveFolder, patternToVerify)).isTrue();
+    assertThat(pathExistsWithPattern(basePath.resolve("parent_project"), "**%archived%.git"))
+        .isFalse();
+  }
+
+  @Test
+  public void archiveRepositoryAsBundle() throws Exception {
+    String repoName = "parent_project/p4";
+    FileRepository repository = createRepository(repoName);
+    try (TestRepository<FileRepository> testRepo = new TestRepository<>(repository)) {
+      testRepo.branch("refs/heads/master").commit().add("file", "content").create();
+    }
+    Path archiveFolder = basePath.resolve("test_archive");
+    Project.NameKey nameKey = Project.nameKey(repoName);
+    when(repoManager.openRepository(nameKey)).thenReturn(repository);
+    when(configMock.getArchiveFormat()).thenReturn(ArchiveFormat.BUNDLE);
+    when(configMock.getArchiveCompressionLevel()).thenReturn(9);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
+    repositoryDelete.execute(nameKey, false, true, Optional.of(archiveFolder), deletedListeners);
+    assertThat(repository.getDirectory().exists()).isFalse();
+    assertThat(pathExistsWithPattern(archiveFolder, "**%archived%.git")).isFalse();
+    String patternToVerify = archiveFolder.resolve(repoName).toString() + "*%archived%.bundle";
+    assertThat(pathExistsWithPattern(archiveFolder, patternToVerify)).isTrue();
   }
 
   @Test
@@ -158,7 +284,15 @@ public class RepositoryDeleteTest {
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     repositoryDelete.execute(nameKey, false, false, NO_ARCHIVE_PATH, deletedListeners);
     Mockito.verify(projectDeleteListener).onProjectDeleted(any());
   }
@@ -169,7 +303,15 @@ public class RepositoryDeleteTest {
     Repository repository = createRepository(repoName);
     Project.NameKey nameKey = Project.nameKey(repoName);
     when(repoManager.openRepository(nameKey)).thenReturn(repository);
-    repositoryDelete = new RepositoryDelete(repoManager, configMock);
+    repositoryDelete =
+        new RepositoryDelete(
+            repoManager,
+            configMock,
+            trashReaper,
+            metrics,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            archiveDeduplicator);
     handle.remove();
     repositoryDelete.execute(nameKey, false, false, NO_ARCHIVE_PATH, deletedListeners);
     Mockito.verify(projectDeleteListener, never()).onProjectDeleted(any());
@@ -0,0 +1,227 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.git.LocalDiskRepositoryManager;
+import com.googlesource.gerrit.plugins.deleteproject.Configuration;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RepositoryRestoreTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("parent/project");
+
+  @Mock private LocalDiskRepositoryManager repoManager;
+  @Mock private Configuration configMock;
+  @Mock private TrashReaper trashReaper;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path basePath;
+  private Path archiveFolder;
+  private RepositoryRestore repositoryRestore;
+
+  @Before
+  public void setUp() throws Exception {
+    basePath = tempFolder.newFolder("base").toPath();
+    archiveFolder = tempFolder.newFolder("archive").toPath();
+    when(repoManager.getBasePath(PROJECT)).thenReturn(basePath);
+    repositoryRestore =
+        new RepositoryRestore(
+            repoManager,
+            configMock,
+            DeletionPool.SEQUENTIAL,
+            ArchiveCopier.SEQUENTIAL,
+            trashReaper);
+  }
+
+  @Test
+  public void shouldRestoreNewestArchivedRepository() throws Exception {
+    stubFolders();
+    Path older = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path newer = archiveFolder.resolve("parent/project.20260201000000.%archived%.git");
+    createRepository(older);
+    RevCommit commit = createRepository(newer);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(newer);
+
+    assertThat(Files.exists(newer)).isFalse();
+    assertThat(Files.exists(older)).isTrue();
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldRestoreTrashedRepository() throws Exception {
+    stubFolders();
+    Path archived = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path trashed = basePath.resolve("parent/project.20260201000000.%deleted%.git");
+    createRepository(archived);
+    RevCommit commit = createRepository(trashed);
+    when(trashReaper.isQueued(trashed)).thenReturn(true);
+    when(trashReaper.claim(trashed)).thenReturn(true);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(trashed);
+
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldSkipTrashedRepositoryBeingReaped() throws Exception {
+    stubFolders();
+    Path archived = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path trashed = basePath.resolve("parent/project.20260201000000.%deleted%.git");
+    RevCommit commit = createRepository(archived);
+    createRepository(trashed);
+    when(trashReaper.isQueued(trashed)).thenReturn(true, false);
+    when(trashReaper.claim(trashed)).thenReturn(false);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(archived);
+
+    assertThat(Files.exists(trashed)).isTrue();
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldSkipTrashedRepositoryNotQueuedForDeletion() throws Exception {
+    stubFolders();
+    Path archived = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path trashed = basePath.resolve("parent/project.20260201000000.%deleted%.git");
+    RevCommit commit = createRepository(archived);
+    createRepository(trashed);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(archived);
+
+    assertThat(Files.exists(trashed)).isTrue();
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldSkipTrashedFolderWhichIsNotRepository() throws Exception {
+    stubFolders();
+    Path archived = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path trashed = basePath.resolve("parent/project.20260201000000.%deleted%.git");
+    RevCommit commit = createRepository(archived);
+    Files.createDirectories(trashed.resolve("objects"));
+    when(trashReaper.isQueued(trashed)).thenReturn(true);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(archived);
+
+    assertThat(Files.exists(trashed)).isTrue();
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldDetachDeduplicatedPacksFromStore() throws Exception {
+    stubFolders();
+    Path archived = archiveFolder.resolve("parent/project.20260101000000.%archived%.git");
+    Path fork = archiveFolder.resolve("parent/fork.20260101000000.%archived%.git");
+    RevCommit commit = createRepository(archived);
+    copyRepository(archived, fork);
+    ArchivePackStore store = new ArchivePackStore(archiveFolder);
+    store.deduplicate(archived);
+    store.deduplicate(fork);
+
+    repositoryRestore.restore(PROJECT);
+
+    assertRestored(commit);
+    try (DirectoryStream<Path> packs =
+        Files.newDirectoryStream(basePath.resolve("parent/project.git/objects/pack"))) {
+      for (Path pack : packs) {
+        assertThat(Files.getAttribute(pack, "unix:nlink")).isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  public void shouldRestoreBundledRepository() throws Exception {
+    stubFolders();
+    Path repo = tempFolder.getRoot().toPath().resolve("repo.git");
+    RevCommit commit = createRepository(repo);
+    Path bundle = archiveFolder.resolve("parent/project.20260101000000.%archived%.bundle");
+    RepositoryBundle.write(repo, bundle, -1);
+
+    assertThat(repositoryRestore.restore(PROJECT)).isEqualTo(bundle);
+
+    assertThat(Files.exists(bundle)).isFalse();
+    assertRestored(commit);
+  }
+
+  @Test
+  public void shouldFailIfNothingToRestore() throws Exception {
+    stubFolders();
+    assertThrows(RepositoryNotFoundException.class, () -> repositoryRestore.restore(PROJECT));
+  }
+
+  @Test
+  public void shouldNotOverwriteExistingRepository() throws Exception {
+    createRepository(basePath.resolve("parent/project.git"));
+    assertThrows(FileAlreadyExistsException.class, () -> repositoryRestore.restore(PROJECT));
+  }
+
+  private void stubFolders() {
+    when(configMock.getArchiveFolder()).thenReturn(archiveFolder);
+    when(configMock.getTrashFolderName()).thenReturn(Configuration.DEFAULT_TRASH_FOLDER_NAME);
+  }
+
+  private static RevCommit createRepository(Path path) throws Exception {
+    Files.createDirectories(path);
+    try (FileRepository repo = new FileRepository(path.toFile())) {
+      repo.create(true);
+      try (TestRepository<FileRepository> testRepo = new TestRepository<>(repo)) {
+        RevCommit commit =
+            testRepo.branch("refs/heads/master").commit().add("file", "content").create();
+        testRepo.packAndPrune();
+        return commit;
+      }
+    }
+  }
+
+  private static void copyRepository(Path source, Path target) throws Exception {
+    try (Stream<Path> files = Files.walk(source)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.copy(file, target.resolve(source.relativize(file).toString()));
+      }
+    }
+  }
+
+  private void assertRestored(RevCommit commit) throws Exception {
+    try (Repository repo = new FileRepository(basePath.resolve("parent/project.git").toFile())) {
+      assertThat(repo.exactRef("refs/heads/master").getObjectId()).isEqualTo(commit);
+      assertThat(repo.exactRef(Constants.HEAD).getTarget().getName())
+          .isEqualTo("refs/heads/master");
+    }
+  }
+}
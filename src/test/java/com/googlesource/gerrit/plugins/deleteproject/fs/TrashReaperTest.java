@@ -0,0 +1,117 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.deleteproject.fs;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.server.git.WorkQueue;
+import com.googlesource.gerrit.plugins.deleteproject.DeletionMetrics;
+import com.googlesource.gerrit.plugins.deleteproject.FakeScheduledExecutorService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TrashReaperTest {
+  private static final String TRASH_FOLDER = "a/b/repo.20260101000000.%deleted%.git";
+
+  @Mock private WorkQueue workQueue;
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path basePath;
+  private Path trash;
+  private TrashReaper reaper;
+
+  @Before
+  public void setUp() throws Exception {
+    basePath = tempFolder.newFolder("base").toPath();
+    trash = Files.createDirectories(basePath.resolve(TRASH_FOLDER));
+    Files.createFile(trash.resolve("packed-refs"));
+    Files.createDirectories(basePath.resolve("a/other.git"));
+    reaper =
+        new TrashReaper(
+            workQueue, new DeletionMetrics(new DisabledMetricMaker()), DeletionPool.SEQUENTIAL);
+  }
+
+  @Test
+  public void shouldDeleteTrashFolderInBackground() throws Exception {
+    when(workQueue.createQueue(anyInt(), anyString()))
+        .thenReturn(new FakeScheduledExecutorService());
+    reaper.start();
+    try {
+      reaper.reap(trash, basePath);
+    } finally {
+      reaper.stop();
+    }
+    assertTrashFolderDeleted();
+  }
+
+  @Test
+  public void shouldDeleteTrashFolderInlineWhenNotStarted() throws Exception {
+    reaper.reap(trash, basePath);
+    assertTrashFolderDeleted();
+  }
+
+  @Test
+  public void shouldNotDeleteClaimedTrashFolder() throws Exception {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(workQueue.createQueue(anyInt(), anyString())).thenReturn(executor);
+    reaper.start();
+    reaper.reap(trash, basePath);
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).submit(task.capture());
+
+    assertThat(reaper.isQueued(trash)).isTrue();
+    assertThat(reaper.claim(trash)).isTrue();
+    task.getValue().run();
+
+    assertThat(Files.exists(trash)).isTrue();
+    assertThat(reaper.isQueued(trash)).isFalse();
+  }
+
+  @Test
+  public void shouldNotClaimTrashFolderWhichIsNotQueued() throws Exception {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(workQueue.createQueue(anyInt(), anyString())).thenReturn(executor);
+    reaper.start();
+    reaper.reap(trash, basePath);
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).submit(task.capture());
+    task.getValue().run();
+
+    assertThat(reaper.claim(trash)).isFalse();
+    assertThat(reaper.claim(basePath.resolve("a/other.20260101000000.%deleted%.git"))).isFalse();
+  }
+
+  private void assertTrashFolderDeleted() {
+    assertThat(Files.exists(trash)).isFalse();
+    assertThat(Files.exists(basePath.resolve("a/b"))).isFalse();
+    assertThat(Files.exists(basePath.resolve("a/other.git"))).isTrue();
+  }
+}